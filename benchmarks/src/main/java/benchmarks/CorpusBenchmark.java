@@ -0,0 +1,59 @@
+package benchmarks;
+
+import corpus.Corpus;
+import corpus.SpecialWordFilter;
+import corpus.SpecialWordType;
+import org.openjdk.jmh.annotations.*;
+import util.Word;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading the GMO corpora and extracting their words. Loading annotates every
+ * document with CoreNLP, so it is timed as single shots.
+ */
+@Fork(1)
+@State(Scope.Benchmark)
+public class CorpusBenchmark {
+    @Param({"1", "4"})
+    public int threads;
+
+    private Corpus corpus;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Fixtures.checkWorkingDirectory();
+
+        corpus = newCorpus();
+        corpus.loadCorpus(Fixtures.POSITIVE_CORPUS, Fixtures.NEGATIVE_CORPUS);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    public Corpus loadCorpus() {
+        Corpus loaded = newCorpus();
+        loaded.loadCorpus(Fixtures.POSITIVE_CORPUS, Fixtures.NEGATIVE_CORPUS);
+
+        return loaded;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3, time = 2)
+    @Measurement(iterations = 5, time = 2)
+    public List<Word> extractWords() {
+        return corpus.extractWords();
+    }
+
+    private Corpus newCorpus() {
+        Corpus newCorpus = new Corpus(threads);
+        newCorpus.setFilter(SpecialWordFilter.get(SpecialWordType.STOP_WORD));
+
+        return newCorpus;
+    }
+}
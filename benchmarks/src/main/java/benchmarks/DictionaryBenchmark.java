@@ -0,0 +1,44 @@
+package benchmarks;
+
+import dictionary.Dictionary;
+import dictionary.SentiWordNetConnector;
+import org.openjdk.jmh.annotations.*;
+import util.Utils;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of the marked dictionary and of a SentiWordNet file, see Fixtures.sentiWordNetFile.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DictionaryBenchmark {
+    private String sentiWordNetFile;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Fixtures.checkWorkingDirectory();
+
+        sentiWordNetFile = Fixtures.sentiWordNetFile();
+    }
+
+    @Benchmark
+    public Dictionary loadDictionary() {
+        Dictionary dictionary = new Dictionary();
+        dictionary.loadDictionary(Utils.markedDictionaryAddress);
+
+        return dictionary;
+    }
+
+    @Benchmark
+    public SentiWordNetConnector loadSentiWordNet() {
+        SentiWordNetConnector connector = new SentiWordNetConnector();
+        connector.loadDictionary(sentiWordNetFile);
+
+        return connector;
+    }
+}
@@ -0,0 +1,39 @@
+package benchmarks;
+
+import corpus.Document;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Document.setText on one document of the corpus and on 32 documents joined: CoreNLP
+ * annotation, filtering and interning of the terms. No annotation cache is set.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DocumentBenchmark {
+    @Param({"small", "large"})
+    public String size;
+
+    private String text;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        text = size.equals("small") ? Fixtures.smallText() : Fixtures.largeText();
+
+        // the shared pipeline is built here instead of in the first measured call
+        new Document().setText(text);
+    }
+
+    @Benchmark
+    public Document setText() {
+        Document document = new Document();
+        document.setText(text);
+
+        return document;
+    }
+}
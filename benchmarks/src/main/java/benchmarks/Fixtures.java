@@ -0,0 +1,136 @@
+package benchmarks;
+
+import corpus.CorpusReader;
+import util.Utils;
+import util.Word;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Benchmark inputs taken from the bundled Files directory.
+ */
+final class Fixtures {
+    static final String SENTIWORDNET_PROPERTY = "sentiwordnet.file";
+
+    // the raw corpora of Utils.proCorpusAddress and Utils.antiCorpusAddress are not bundled
+    static final String POSITIVE_CORPUS = Utils.proCorpusProcessedAddress;
+    static final String NEGATIVE_CORPUS = Utils.antiCorpusProcessedAddress;
+
+    // processed documents are 1-1.5 KB long, the large text joins this many of them
+    private static final int LARGE_TEXT_DOCUMENTS = 32;
+
+    private Fixtures() {
+    }
+
+    static void checkWorkingDirectory() {
+        if (!new File(POSITIVE_CORPUS).isFile())
+            throw new IllegalStateException("Benchmarks must run from the project root, "
+                    + POSITIVE_CORPUS + " not found");
+    }
+
+    static List<String> readTexts(String corpusAddress) {
+        checkWorkingDirectory();
+
+        List<String> texts = new ArrayList<>();
+
+        try (CorpusReader reader = new CorpusReader(new File(corpusAddress))) {
+            reader.forEachRemaining(texts::add);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return texts;
+    }
+
+    /**
+     * @return the shortest text of the positive corpus
+     */
+    static String smallText() {
+        return readTexts(POSITIVE_CORPUS).stream()
+                .min(Comparator.comparingInt(String::length))
+                .orElseThrow(IllegalStateException::new);
+    }
+
+    /**
+     * @return the first LARGE_TEXT_DOCUMENTS texts of the positive corpus as one text
+     */
+    static String largeText() {
+        List<String> texts = readTexts(POSITIVE_CORPUS);
+
+        return String.join("\n", texts.subList(0, Math.min(LARGE_TEXT_DOCUMENTS, texts.size())));
+    }
+
+    /**
+     * @return words of the bundled marked dictionaries
+     */
+    static List<Word> markedWords() {
+        checkWorkingDirectory();
+
+        List<Word> words = new ArrayList<>();
+
+        for (String address : Arrays.asList(Utils.markedAdjectives, Utils.markedAdverbs,
+                Utils.markedNouns, Utils.markedVerbs)) {
+            try {
+                for (String line : Files.readAllLines(Paths.get(address), StandardCharsets.UTF_8)) {
+                    Word word = Word.parseWord(line);
+
+                    if (word != null && word.isWord())
+                        words.add(word);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        return words;
+    }
+
+    /**
+     * SentiWordNet is not bundled: the file of the sentiwordnet.file property is used if set,
+     * otherwise a file in its format is generated from the marked dictionaries.
+     */
+    static String sentiWordNetFile() {
+        String address = System.getProperty(SENTIWORDNET_PROPERTY);
+
+        if (address != null)
+            return address;
+
+        try {
+            Path file = Files.createTempFile("sentiwordnet", ".txt");
+            file.toFile().deleteOnExit();
+
+            try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+                writer.println("# POS\tID\tPosScore\tNegScore\tSynsetTerms\tGloss");
+
+                long id = 0;
+
+                for (Word word : markedWords()) {
+                    double mark = Math.max(-1.0, Math.min(1.0, word.getMark()));
+
+                    writer.println(sentiWordNetPOS(word) + "\t" + (id++) + "\t" + Math.max(mark, 0) + "\t"
+                            + Math.max(-mark, 0) + "\t" + word.getWord().replace(' ', '_') + "#1\t");
+                }
+            }
+
+            return file.toString();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String sentiWordNetPOS(Word word) {
+        if (word.isAdjective())
+            return "a";
+        else if (word.isAdverb())
+            return "r";
+        else if (word.isVerb())
+            return "v";
+        else
+            return "n";
+    }
+}
@@ -0,0 +1,149 @@
+package benchmarks;
+
+import classifiers.NaiveBayesType;
+import corpus.Document;
+import corpus.DocumentOpinion;
+import util.POS;
+import util.Vocabulary;
+
+import java.util.*;
+
+/**
+ * Naive Bayes scoring as it was before trained models were compiled into log-ratio
+ * weights: per-class probabilities in HashMaps keyed by words hashed through a
+ * lemma + POS string, containsKey and get on both maps and two Math.log calls per
+ * term. Only kept as the baseline of NaiveBayesBenchmark.
+ */
+final class LegacyNaiveBayes {
+    private static final Key UNKNOWN_WORD = new Key("UNKNOWN_WORD", null);
+
+    private final Map<NaiveBayesType, Map<Key, Double>> positiveProbabilities = new EnumMap<>(NaiveBayesType.class);
+    private final Map<NaiveBayesType, Map<Key, Double>> negativeProbabilities = new EnumMap<>(NaiveBayesType.class);
+
+    private double positiveDocumentProbability;
+    private double negativeDocumentProbability;
+
+    LegacyNaiveBayes(List<Document> positiveDocuments, List<Document> negativeDocuments) {
+        double totalNumberOfDocuments = positiveDocuments.size() + negativeDocuments.size();
+        positiveDocumentProbability = positiveDocuments.size() / totalNumberOfDocuments;
+        negativeDocumentProbability = negativeDocuments.size() / totalNumberOfDocuments;
+
+        for (NaiveBayesType type : NaiveBayesType.values()) {
+            Map<Key, Integer> positiveFrequencies = getWordsFrequencies(positiveDocuments, type);
+            Map<Key, Integer> negativeFrequencies = getWordsFrequencies(negativeDocuments, type);
+
+            Set<Key> allWords = new HashSet<>(positiveFrequencies.keySet());
+            allWords.addAll(negativeFrequencies.keySet());
+
+            // 1 is for UNKNOWN_WORD
+            double positiveDenominator = total(positiveFrequencies) + positiveFrequencies.size() + 1;
+            double negativeDenominator = total(negativeFrequencies) + negativeFrequencies.size() + 1;
+
+            Map<Key, Double> positiveMap = new HashMap<>();
+            Map<Key, Double> negativeMap = new HashMap<>();
+
+            for (Key word : allWords) {
+                positiveMap.put(word, positiveFrequencies.getOrDefault(word, 1) / positiveDenominator);
+                negativeMap.put(word, negativeFrequencies.getOrDefault(word, 1) / negativeDenominator);
+            }
+
+            positiveMap.put(UNKNOWN_WORD, 1 / positiveDenominator);
+            negativeMap.put(UNKNOWN_WORD, 1 / negativeDenominator);
+
+            positiveProbabilities.put(type, positiveMap);
+            negativeProbabilities.put(type, negativeMap);
+        }
+    }
+
+    /**
+     * @return words of the document, the list the old Document kept for classification
+     */
+    static List<Key> getWords(Document document) {
+        Vocabulary vocabulary = document.getVocabulary();
+        List<Key> words = new ArrayList<>();
+
+        for (int termId : document.getTermIds()) {
+            words.add(new Key(vocabulary.getLemma(termId), vocabulary.getPOS(termId)));
+        }
+
+        return words;
+    }
+
+    DocumentOpinion classify(List<Key> words, NaiveBayesType type) {
+        Map<Key, Double> positiveMap = positiveProbabilities.get(type);
+        Map<Key, Double> negativeMap = negativeProbabilities.get(type);
+
+        double positiveProbability = 0;
+        double negativeProbability = 0;
+
+        for (Key word : words) {
+            double wordPositiveProbability = (positiveMap.containsKey(word)) ?
+                    positiveMap.get(word) : positiveMap.get(UNKNOWN_WORD);
+            double wordNegativeProbability = (negativeMap.containsKey(word)) ?
+                    negativeMap.get(word) : negativeMap.get(UNKNOWN_WORD);
+
+            positiveProbability += Math.log(wordPositiveProbability);
+            negativeProbability += Math.log(wordNegativeProbability);
+        }
+
+        positiveProbability += Math.log(positiveDocumentProbability);
+        negativeProbability += Math.log(negativeDocumentProbability);
+
+        return (positiveProbability > negativeProbability) ? DocumentOpinion.POSITIVE : DocumentOpinion.NEGATIVE;
+    }
+
+    private static Map<Key, Integer> getWordsFrequencies(List<Document> documents, NaiveBayesType type) {
+        Map<Key, Integer> frequencies = new HashMap<>();
+
+        for (Document document : documents) {
+            List<Key> words = getWords(document);
+            int[] counts = document.getCounts();
+
+            for (int i = 0; i < words.size(); ++i) {
+                int count = (type == NaiveBayesType.MULTINOMIAL) ? counts[i] : 1;
+                frequencies.merge(words.get(i), count, Integer::sum);
+            }
+        }
+
+        return frequencies;
+    }
+
+    private static long total(Map<Key, Integer> frequencies) {
+        long total = 0;
+
+        for (int frequency : frequencies.values()) {
+            total += frequency;
+        }
+
+        return total;
+    }
+
+    /**
+     * Word key with the old Word hashing: a new lemma + POS string on every call.
+     */
+    static final class Key {
+        private final String word;
+        private final POS pos;
+
+        Key(String word, POS pos) {
+            this.word = word;
+            this.pos = pos;
+        }
+
+        @Override
+        public int hashCode() {
+            String temp = word + pos;
+            return temp.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+
+            Key key = (Key) o;
+
+            return word.equals(key.word) && Objects.equals(pos, key.pos);
+        }
+    }
+}
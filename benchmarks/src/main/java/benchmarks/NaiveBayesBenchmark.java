@@ -0,0 +1,101 @@
+package benchmarks;
+
+import classifiers.NaiveBayes;
+import classifiers.NaiveBayesType;
+import corpus.*;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Training and classification on the loaded GMO corpora. learn trains both variants
+ * on all documents in one batch, partialFit adds the documents one by one.
+ * classifyLegacy runs the HashMap and Math.log scoring that classify replaced,
+ * on the same documents, as the baseline of classify.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NaiveBayesBenchmark {
+    private Corpus corpus;
+    private List<Document> documents;
+
+    private NaiveBayes classifier;
+
+    private LegacyNaiveBayes legacyClassifier;
+    private List<List<LegacyNaiveBayes.Key>> legacyDocuments;
+
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Fixtures.checkWorkingDirectory();
+
+        corpus = new Corpus(Runtime.getRuntime().availableProcessors());
+        corpus.setFilter(SpecialWordFilter.get(SpecialWordType.STOP_WORD));
+        corpus.loadCorpus(Fixtures.POSITIVE_CORPUS, Fixtures.NEGATIVE_CORPUS);
+
+        documents = corpus.getDocuments();
+
+        classifier = new NaiveBayes();
+        classifier.learn(corpus.getPositiveDocuments(), corpus.getNegativeDocuments());
+
+        legacyClassifier = new LegacyNaiveBayes(corpus.getPositiveDocuments(), corpus.getNegativeDocuments());
+        legacyDocuments = new ArrayList<>();
+
+        for (Document document : documents) {
+            legacyDocuments.add(LegacyNaiveBayes.getWords(document));
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public NaiveBayes learn() {
+        NaiveBayes trained = new NaiveBayes();
+        trained.learn(corpus.getPositiveDocuments(), corpus.getNegativeDocuments());
+
+        return trained;
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public NaiveBayes partialFit() {
+        NaiveBayes trained = new NaiveBayes();
+
+        for (Document document : documents) {
+            trained.partialFit(document, document.getOpinion());
+        }
+
+        return trained;
+    }
+
+    @Benchmark
+    public DocumentOpinion classify(Variant variant) {
+        Document document = documents.get(next);
+        next = (next + 1) % documents.size();
+
+        return classifier.classify(document, variant.type);
+    }
+
+    @Benchmark
+    public DocumentOpinion classifyLegacy(Variant variant) {
+        List<LegacyNaiveBayes.Key> words = legacyDocuments.get(next);
+        next = (next + 1) % legacyDocuments.size();
+
+        return legacyClassifier.classify(words, variant.type);
+    }
+
+    /**
+     * Classifier variant, a separate state so that training is not repeated for both.
+     */
+    @State(Scope.Benchmark)
+    public static class Variant {
+        @Param({"MULTINOMIAL", "BINARY"})
+        public NaiveBayesType type;
+    }
+}
@@ -0,0 +1,65 @@
+package benchmarks;
+
+import org.openjdk.jmh.annotations.*;
+import util.Word;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Word.hashCode and equals through HashMap: filling a map with the words of the
+ * marked dictionaries and looking them up by equal, separately created keys.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WordBenchmark {
+    private List<Word> words;
+    private List<Word> keys;
+
+    private Map<Word, Word> map;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        words = Fixtures.markedWords();
+        keys = new ArrayList<>(words.size());
+
+        for (Word word : words) {
+            keys.add(new Word(new String(word.getWord()), word.getPOS()));
+        }
+
+        Collections.shuffle(keys, new Random(42));
+
+        map = new HashMap<>();
+
+        for (Word word : words) {
+            map.put(word, word);
+        }
+    }
+
+    @Benchmark
+    public Map<Word, Word> put() {
+        Map<Word, Word> filled = new HashMap<>();
+
+        for (Word word : words) {
+            filled.put(word, word);
+        }
+
+        return filled;
+    }
+
+    @Benchmark
+    public int get() {
+        int found = 0;
+
+        for (Word key : keys) {
+            if (map.get(key) != null)
+                ++found;
+        }
+
+        return found;
+    }
+}
@@ -0,0 +1,46 @@
+package classifiers;
+
+import corpus.DocumentOpinion;
+
+import java.util.Formatter;
+import java.util.Locale;
+
+/**
+ * Decision of the classifier for one document with the class log-scores it was based on.
+ */
+public class Classification {
+    private final DocumentOpinion opinion;
+
+    private final double positiveScore;
+    private final double negativeScore;
+
+    public Classification(double positiveScore, double negativeScore) {
+        this.positiveScore = positiveScore;
+        this.negativeScore = negativeScore;
+
+        this.opinion = (positiveScore > negativeScore) ? DocumentOpinion.POSITIVE : DocumentOpinion.NEGATIVE;
+    }
+
+    public DocumentOpinion getOpinion() { return this.opinion; }
+
+    /**
+     * @return log P(+) + sum of log P(t|+) over the document terms
+     */
+    public double getPositiveScore() { return this.positiveScore; }
+
+    /**
+     * @return log P(-) + sum of log P(t|-) over the document terms
+     */
+    public double getNegativeScore() { return this.negativeScore; }
+
+    public double getLogOdds() { return this.positiveScore - this.negativeScore; }
+
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        Formatter format = new Formatter(text, Locale.US);
+
+        format.format("%1$-8s\t%2$12.4f\t%3$12.4f", opinion, positiveScore, negativeScore);
+
+        return format.toString();
+    }
+}
@@ -0,0 +1,80 @@
+package classifiers;
+
+import corpus.DocumentOpinion;
+
+/**
+ * Counts of positive/negative decisions against the true opinions.
+ */
+public class ConfusionMatrix {
+    private long truePositive;
+    private long falsePositive;
+    private long trueNegative;
+    private long falseNegative;
+
+    public ConfusionMatrix() {
+    }
+
+    ConfusionMatrix(long truePositive, long falsePositive, long trueNegative, long falseNegative) {
+        this.truePositive = truePositive;
+        this.falsePositive = falsePositive;
+        this.trueNegative = trueNegative;
+        this.falseNegative = falseNegative;
+    }
+
+    public void add(DocumentOpinion actual, DocumentOpinion predicted) {
+        if (actual == DocumentOpinion.POSITIVE) {
+            if (predicted == DocumentOpinion.POSITIVE)
+                ++truePositive;
+            else
+                ++falseNegative;
+        } else {
+            if (predicted == DocumentOpinion.NEGATIVE)
+                ++trueNegative;
+            else
+                ++falsePositive;
+        }
+    }
+
+    public void merge(ConfusionMatrix anotherMatrix) {
+        this.truePositive += anotherMatrix.truePositive;
+        this.falsePositive += anotherMatrix.falsePositive;
+        this.trueNegative += anotherMatrix.trueNegative;
+        this.falseNegative += anotherMatrix.falseNegative;
+    }
+
+    public long getTruePositive() { return this.truePositive; }
+
+    public long getFalsePositive() { return this.falsePositive; }
+
+    public long getTrueNegative() { return this.trueNegative; }
+
+    public long getFalseNegative() { return this.falseNegative; }
+
+    public long getTotal() { return truePositive + falsePositive + trueNegative + falseNegative; }
+
+    public double getAccuracy() {
+        return (double) (truePositive + trueNegative) / getTotal();
+    }
+
+    public double getPrecision() {
+        return (double) truePositive / (truePositive + falsePositive);
+    }
+
+    public double getRecall() {
+        return (double) truePositive / (truePositive + falseNegative);
+    }
+
+    public double getFMeasure() {
+        double precision = getPrecision();
+        double recall = getRecall();
+
+        return 2 * precision * recall / (precision + recall);
+    }
+
+    public String toString() {
+        return "Accuracy: " + getAccuracy() + "\n" +
+                "Precision: " + getPrecision() + "\n" +
+                "Recall: " + getRecall() + "\n" +
+                "F-measure: " + getFMeasure();
+    }
+}
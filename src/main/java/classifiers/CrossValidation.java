@@ -0,0 +1,172 @@
+package classifiers;
+
+import corpus.Corpus;
+import corpus.Document;
+import corpus.DocumentOpinion;
+
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * k-fold cross-validation of both Naive Bayes variants.
+ *
+ * Term vectors of the documents are computed once and summed into a model
+ * over the whole corpus. The model of every fold is that model minus the
+ * counts of the fold's testing documents, so the corpus is counted once
+ * instead of once per fold and variant. Folds are evaluated in parallel.
+ */
+public class CrossValidation {
+    private int folds;
+    private int threads;
+
+    public CrossValidation(int folds) {
+        this(folds, Runtime.getRuntime().availableProcessors());
+    }
+
+    public CrossValidation(int folds, int threads) {
+        if (folds < 2)
+            throw new IllegalArgumentException("Cross validation needs at least 2 folds: " + folds);
+        if (threads < 1)
+            throw new IllegalArgumentException("Number of threads must be positive: " + threads);
+
+        this.folds = folds;
+        this.threads = threads;
+    }
+
+    public CrossValidationResult run(Corpus corpus) {
+        NaiveBayes classifier = new NaiveBayes();
+        classifier.setVocabulary(corpus.getVocabulary());
+        classifier.setPatternFeatures(corpus.hasPatternFeatures());
+
+        // the pattern index is filled sequentially, then the documents are vectorized in parallel
+        corpus.getDocuments().forEach(classifier::indexPatterns);
+
+        List<TermVector> positiveDocuments = vectorize(classifier, corpus.getPositiveDocuments());
+        List<TermVector> negativeDocuments = vectorize(classifier, corpus.getNegativeDocuments());
+
+        return run(positiveDocuments, negativeDocuments, classifier::newModel);
+    }
+
+    /**
+     * Cross-validates HashedNaiveBayes: the documents of the corpus are hashed by the vectorizer.
+     */
+    public CrossValidationResult run(Corpus corpus, HashingVectorizer vectorizer) {
+        List<TermVector> positiveDocuments = vectorize(vectorizer, corpus.getPositiveDocuments());
+        List<TermVector> negativeDocuments = vectorize(vectorizer, corpus.getNegativeDocuments());
+
+        return run(positiveDocuments, negativeDocuments, type -> HashedNaiveBayes.newModel(vectorizer, type));
+    }
+
+    private CrossValidationResult run(List<TermVector> positiveDocuments, List<TermVector> negativeDocuments,
+                                      Function<NaiveBayesType, NaiveBayesModel> modelFactory) {
+        Map<NaiveBayesType, NaiveBayesModel> corpusModels = new EnumMap<>(NaiveBayesType.class);
+
+        for (NaiveBayesType type : NaiveBayesType.values()) {
+            NaiveBayesModel model = modelFactory.apply(type);
+
+            positiveDocuments.forEach(document -> model.add(document, DocumentOpinion.POSITIVE));
+            negativeDocuments.forEach(document -> model.add(document, DocumentOpinion.NEGATIVE));
+
+            corpusModels.put(type, model);
+        }
+
+        CrossValidationResult result = new CrossValidationResult(folds);
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(threads, folds));
+        List<Future<Map<NaiveBayesType, ConfusionMatrix>>> futures = new ArrayList<>();
+
+        try {
+            for (int fold = 0; fold < folds; ++fold) {
+                int testingFold = fold;
+                futures.add(executor.submit(() ->
+                        evaluateFold(corpusModels, positiveDocuments, negativeDocuments, testingFold)));
+            }
+
+            for (int fold = 0; fold < folds; ++fold) {
+                result.setFoldResult(fold, futures.get(fold).get());
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Cross validation fold failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Cross validation interrupted", e);
+        } finally {
+            // folds still running after a failure are not needed, a partial result is never returned
+            for (Future<Map<NaiveBayesType, ConfusionMatrix>> future : futures) {
+                future.cancel(true);
+            }
+
+            executor.shutdown();
+        }
+
+        return result;
+    }
+
+    /**
+     * Split used by the cross validation, NaiveBayes.learn and the reports: documents of a class
+     * are cut into folds of equal share in their corpus order.
+     */
+    public static boolean isInTestingFold(int index, int size, int fold, int folds) {
+        double foldShare = 1.0 / folds;
+        double testingSetStart = foldShare * fold;
+
+        return index >= testingSetStart * size && index < testingSetStart * size + foldShare * size;
+    }
+
+    private Map<NaiveBayesType, ConfusionMatrix> evaluateFold(Map<NaiveBayesType, NaiveBayesModel> corpusModels,
+                                                              List<TermVector> positiveDocuments,
+                                                              List<TermVector> negativeDocuments,
+                                                              int fold) {
+        List<TermVector> positiveTestingSet = getTestingSet(positiveDocuments, fold);
+        List<TermVector> negativeTestingSet = getTestingSet(negativeDocuments, fold);
+
+        Map<NaiveBayesType, ConfusionMatrix> results = new EnumMap<>(NaiveBayesType.class);
+
+        for (NaiveBayesType type : NaiveBayesType.values()) {
+            NaiveBayesModel model = corpusModels.get(type).copy();
+
+            positiveTestingSet.forEach(document -> model.remove(document, DocumentOpinion.POSITIVE));
+            negativeTestingSet.forEach(document -> model.remove(document, DocumentOpinion.NEGATIVE));
+            model.compile();
+
+            ConfusionMatrix matrix = new ConfusionMatrix();
+
+            for (TermVector document : positiveTestingSet) {
+                matrix.add(DocumentOpinion.POSITIVE, NaiveBayes.score(model, document).getOpinion());
+            }
+
+            for (TermVector document : negativeTestingSet) {
+                matrix.add(DocumentOpinion.NEGATIVE, NaiveBayes.score(model, document).getOpinion());
+            }
+
+            results.put(type, matrix);
+        }
+
+        return results;
+    }
+
+    private List<TermVector> getTestingSet(List<TermVector> documents, int fold) {
+        List<TermVector> testingSet = new ArrayList<>();
+
+        for (int i = 0; i < documents.size(); ++i) {
+            if (isInTestingFold(i, documents.size(), fold, folds))
+                testingSet.add(documents.get(i));
+        }
+
+        return testingSet;
+    }
+
+    private static List<TermVector> vectorize(NaiveBayes classifier, List<Document> documents) {
+        return documents.parallelStream().map(classifier::vectorize).collect(Collectors.toList());
+    }
+
+    private static List<TermVector> vectorize(HashingVectorizer vectorizer, List<Document> documents) {
+        return documents.parallelStream()
+                .map(document -> vectorizer.vectorize(document).toTermVector())
+                .collect(Collectors.toList());
+    }
+}
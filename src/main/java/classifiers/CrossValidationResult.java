@@ -0,0 +1,74 @@
+package classifiers;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Confusion matrices of every fold and variant of a cross validation run.
+ */
+public class CrossValidationResult {
+    private final List<Map<NaiveBayesType, ConfusionMatrix>> foldResults;
+
+    CrossValidationResult(int folds) {
+        foldResults = new ArrayList<>(Collections.nCopies(folds, null));
+    }
+
+    void setFoldResult(int fold, Map<NaiveBayesType, ConfusionMatrix> result) {
+        foldResults.set(fold, result);
+    }
+
+    public int getFoldsNumber() { return this.foldResults.size(); }
+
+    public ConfusionMatrix getFoldResult(int fold, NaiveBayesType type) {
+        return foldResults.get(fold).get(type);
+    }
+
+    /**
+     * @return sum of the confusion matrices of all folds
+     */
+    public ConfusionMatrix getAggregate(NaiveBayesType type) {
+        ConfusionMatrix aggregate = new ConfusionMatrix();
+
+        for (Map<NaiveBayesType, ConfusionMatrix> foldResult : foldResults) {
+            aggregate.merge(foldResult.get(type));
+        }
+
+        return aggregate;
+    }
+
+    /**
+     * @return mean of the per-fold accuracies
+     */
+    public double getMeanAccuracy(NaiveBayesType type) {
+        double sum = 0;
+
+        for (Map<NaiveBayesType, ConfusionMatrix> foldResult : foldResults) {
+            sum += foldResult.get(type).getAccuracy();
+        }
+
+        return sum / foldResults.size();
+    }
+
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+
+        for (int fold = 0; fold < foldResults.size(); ++fold) {
+            text.append("\nCross validation. Fold #").append(fold).append('\n');
+
+            for (NaiveBayesType type : NaiveBayesType.values()) {
+                text.append('\n').append(type).append(" classifier:\n");
+                text.append(getFoldResult(fold, type)).append('\n');
+            }
+        }
+
+        for (NaiveBayesType type : NaiveBayesType.values()) {
+            text.append("\nAggregate ").append(type).append(" results (mean accuracy ")
+                    .append(getMeanAccuracy(type)).append("):\n");
+            text.append(getAggregate(type)).append('\n');
+        }
+
+        return text.toString();
+    }
+}
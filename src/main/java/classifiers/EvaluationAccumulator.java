@@ -0,0 +1,218 @@
+package classifiers;
+
+import corpus.DocumentOpinion;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Collects classifications of labeled documents, safe for concurrent use from
+ * parallel classification.
+ *
+ * Up to exactCurvesLimit documents (DEFAULT_EXACT_CURVES_LIMIT, 100000) the raw
+ * log-odds are kept and sorted by getResult, so the curves of EvaluationResult
+ * are exact; this costs 8 bytes per document and a sort of at most the limit.
+ * Beyond the limit the raw log-odds are dropped and the curves come from
+ * log-odds quantized on an asinh scale: binsPerUnit bins per unit of
+ * asinh(log-odds), so the bins are about 1/binsPerUnit wide around 0 and
+ * proportionally wider for confident scores. Their memory does not depend on
+ * the number of documents, and the bins are already in score order, so they
+ * need no sort. The decisions at threshold 0 are always counted exactly.
+ */
+public class EvaluationAccumulator {
+    public static final int DEFAULT_BINS_PER_UNIT = 100;
+    public static final int DEFAULT_EXACT_CURVES_LIMIT = 100_000;
+
+    // asinh(12) ~ 81000, larger log-odds fall into the outermost bins
+    private static final double MAX_SCALED_SCORE = 12.0;
+
+    private final int binsPerUnit;
+    private final int zeroBin;
+
+    private final AtomicLongArray positives;
+    private final AtomicLongArray negatives;
+
+    private final LongAdder truePositive = new LongAdder();
+    private final LongAdder falsePositive = new LongAdder();
+    private final LongAdder trueNegative = new LongAdder();
+    private final LongAdder falseNegative = new LongAdder();
+
+    private final int exactCurvesLimit;
+
+    // raw log-odds of each class, guarded by this, null once more than exactCurvesLimit documents were added
+    private double[] positiveLogOdds = new double[16];
+    private double[] negativeLogOdds = new double[16];
+    private int positiveLogOddsNumber;
+    private int negativeLogOddsNumber;
+
+    public EvaluationAccumulator() {
+        this(DEFAULT_BINS_PER_UNIT);
+    }
+
+    public EvaluationAccumulator(int binsPerUnit) {
+        this(binsPerUnit, DEFAULT_EXACT_CURVES_LIMIT);
+    }
+
+    /**
+     * @param exactCurvesLimit number of documents up to which the curves are exact, 0 to always bin
+     */
+    public EvaluationAccumulator(int binsPerUnit, int exactCurvesLimit) {
+        if (binsPerUnit < 1)
+            throw new IllegalArgumentException("Number of bins per unit must be positive: " + binsPerUnit);
+
+        if (exactCurvesLimit < 0)
+            throw new IllegalArgumentException("Exact curves limit must not be negative: " + exactCurvesLimit);
+
+        this.binsPerUnit = binsPerUnit;
+        this.exactCurvesLimit = exactCurvesLimit;
+        this.zeroBin = (int) Math.ceil(MAX_SCALED_SCORE * binsPerUnit);
+
+        this.positives = new AtomicLongArray(2 * zeroBin + 1);
+        this.negatives = new AtomicLongArray(2 * zeroBin + 1);
+    }
+
+    public void add(DocumentOpinion actual, Classification classification) {
+        add(actual, classification.getOpinion(), classification.getLogOdds());
+    }
+
+    /**
+     * Adds a document decided by the sign of its log-odds.
+     */
+    public void add(DocumentOpinion actual, double logOdds) {
+        add(actual, (logOdds > 0) ? DocumentOpinion.POSITIVE : DocumentOpinion.NEGATIVE, logOdds);
+    }
+
+    /**
+     * @return snapshot of the documents added so far
+     */
+    public EvaluationResult getResult() {
+        double[] positiveScores;
+        double[] negativeScores;
+
+        synchronized (this) {
+            positiveScores = (positiveLogOdds != null) ? Arrays.copyOf(positiveLogOdds, positiveLogOddsNumber) : null;
+            negativeScores = (negativeLogOdds != null) ? Arrays.copyOf(negativeLogOdds, negativeLogOddsNumber) : null;
+        }
+
+        ConfusionMatrix matrix = new ConfusionMatrix(truePositive.sum(), falsePositive.sum(),
+                trueNegative.sum(), falseNegative.sum());
+
+        if (positiveScores != null)
+            return getExactResult(matrix, positiveScores, negativeScores);
+
+        int binsNumber = positives.length();
+        long[] positiveCounts = new long[binsNumber];
+        long[] negativeCounts = new long[binsNumber];
+        double[] scores = new double[binsNumber];
+
+        for (int bin = 0; bin < binsNumber; ++bin) {
+            positiveCounts[bin] = positives.get(bin);
+            negativeCounts[bin] = negatives.get(bin);
+            scores[bin] = score(bin);
+        }
+
+        return new EvaluationResult(matrix, scores, positiveCounts, negativeCounts);
+    }
+
+    /**
+     * Groups the sorted log-odds of both classes by their distinct values, the groups
+     * take the place of the bins.
+     */
+    private static EvaluationResult getExactResult(ConfusionMatrix matrix, double[] positiveScores,
+                                                   double[] negativeScores) {
+        Arrays.sort(positiveScores);
+        Arrays.sort(negativeScores);
+
+        int capacity = positiveScores.length + negativeScores.length;
+        double[] scores = new double[capacity];
+        long[] positiveCounts = new long[capacity];
+        long[] negativeCounts = new long[capacity];
+        int size = 0;
+
+        for (int i = 0, j = 0; i < positiveScores.length || j < negativeScores.length; ++size) {
+            double score = (j == negativeScores.length
+                    || (i < positiveScores.length && positiveScores[i] <= negativeScores[j]))
+                    ? positiveScores[i] : negativeScores[j];
+
+            scores[size] = score;
+
+            for (; i < positiveScores.length && positiveScores[i] == score; ++i) {
+                ++positiveCounts[size];
+            }
+
+            for (; j < negativeScores.length && negativeScores[j] == score; ++j) {
+                ++negativeCounts[size];
+            }
+        }
+
+        return new EvaluationResult(matrix, Arrays.copyOf(scores, size), Arrays.copyOf(positiveCounts, size),
+                Arrays.copyOf(negativeCounts, size));
+    }
+
+    private void add(DocumentOpinion actual, DocumentOpinion predicted, double logOdds) {
+        if (Double.isNaN(logOdds))
+            throw new IllegalArgumentException("Log-odds is NaN");
+
+        boolean positive = actual == DocumentOpinion.POSITIVE;
+
+        addLogOdds(positive, logOdds);
+
+        if (positive) {
+            positives.incrementAndGet(bin(logOdds));
+
+            if (predicted == DocumentOpinion.POSITIVE)
+                truePositive.increment();
+            else
+                falseNegative.increment();
+        } else {
+            negatives.incrementAndGet(bin(logOdds));
+
+            if (predicted == DocumentOpinion.NEGATIVE)
+                trueNegative.increment();
+            else
+                falsePositive.increment();
+        }
+    }
+
+    private synchronized void addLogOdds(boolean positive, double logOdds) {
+        if (positiveLogOdds == null)
+            return;
+
+        if (positiveLogOddsNumber + negativeLogOddsNumber >= exactCurvesLimit) {
+            // from now on the curves come from the bins
+            positiveLogOdds = null;
+            negativeLogOdds = null;
+            return;
+        }
+
+        if (positive) {
+            if (positiveLogOddsNumber == positiveLogOdds.length)
+                positiveLogOdds = Arrays.copyOf(positiveLogOdds, 2 * positiveLogOdds.length);
+
+            positiveLogOdds[positiveLogOddsNumber++] = logOdds;
+        } else {
+            if (negativeLogOddsNumber == negativeLogOdds.length)
+                negativeLogOdds = Arrays.copyOf(negativeLogOdds, 2 * negativeLogOdds.length);
+
+            negativeLogOdds[negativeLogOddsNumber++] = logOdds;
+        }
+    }
+
+    private int bin(double logOdds) {
+        double scaled = Math.max(-MAX_SCALED_SCORE, Math.min(MAX_SCALED_SCORE, asinh(logOdds)));
+
+        return zeroBin + (int) Math.round(scaled * binsPerUnit);
+    }
+
+    // log-odds at the center of the bin
+    private double score(int bin) {
+        return Math.sinh((double) (bin - zeroBin) / binsPerUnit);
+    }
+
+    private static double asinh(double value) {
+        double absolute = Math.abs(value);
+
+        return Math.signum(value) * Math.log(absolute + Math.sqrt(absolute * absolute + 1));
+    }
+}
@@ -0,0 +1,300 @@
+package classifiers;
+
+import java.util.*;
+
+/**
+ * Evaluation of a classifier on labeled documents: the confusion matrix at
+ * threshold 0 and, from the quantized log-odds of EvaluationAccumulator, the ROC
+ * and precision-recall curves and the calibration of sigmoid(log-odds) as the
+ * probability of the positive class. Documents of one score bin share their
+ * threshold: the bins are the distinct log-odds, so the curves are exact, unless
+ * the accumulator went over its exact curves limit and the curves are exact up to
+ * the bin width.
+ */
+public class EvaluationResult {
+    public static final int RELIABILITY_BUCKETS = 10;
+
+    private final ConfusionMatrix matrix;
+
+    // non-empty score bins (distinct log-odds or quantized ones) in ascending order
+    private final double[] scores;
+    private final long[] positives;
+    private final long[] negatives;
+
+    private final long positivesNumber;
+    private final long negativesNumber;
+
+    EvaluationResult(ConfusionMatrix matrix, double[] binScores, long[] binPositives, long[] binNegatives) {
+        int size = 0;
+
+        for (int bin = 0; bin < binScores.length; ++bin) {
+            if (binPositives[bin] + binNegatives[bin] > 0)
+                ++size;
+        }
+
+        this.matrix = matrix;
+        this.scores = new double[size];
+        this.positives = new long[size];
+        this.negatives = new long[size];
+
+        long positiveSum = 0;
+        long negativeSum = 0;
+
+        for (int bin = 0, i = 0; bin < binScores.length; ++bin) {
+            if (binPositives[bin] + binNegatives[bin] == 0)
+                continue;
+
+            scores[i] = binScores[bin];
+            positives[i] = binPositives[bin];
+            negatives[i] = binNegatives[bin];
+            positiveSum += positives[i];
+            negativeSum += negatives[i];
+            ++i;
+        }
+
+        this.positivesNumber = positiveSum;
+        this.negativesNumber = negativeSum;
+    }
+
+    /**
+     * @return exact decisions of the classifier, positive for log-odds above 0
+     */
+    public ConfusionMatrix getConfusionMatrix() { return this.matrix; }
+
+    /**
+     * @return decisions with documents of log-odds above the threshold counted positive, exact unless binned
+     */
+    public ConfusionMatrix getConfusionMatrix(double threshold) {
+        long truePositive = 0;
+        long falsePositive = 0;
+
+        for (int i = 0; i < scores.length; ++i) {
+            if (scores[i] > threshold) {
+                truePositive += positives[i];
+                falsePositive += negatives[i];
+            }
+        }
+
+        return new ConfusionMatrix(truePositive, falsePositive, negativesNumber - falsePositive,
+                positivesNumber - truePositive);
+    }
+
+    public long getPositivesNumber() { return this.positivesNumber; }
+
+    public long getNegativesNumber() { return this.negativesNumber; }
+
+    /**
+     * @return ROC curve from (0, 0) to (1, 1): x is the false positive rate and y the true positive
+     * rate of the documents with log-odds of at least the threshold
+     */
+    public List<CurvePoint> getRocCurve() {
+        List<CurvePoint> curve = new ArrayList<>(scores.length + 1);
+        curve.add(new CurvePoint(Double.POSITIVE_INFINITY, 0, 0));
+
+        long truePositive = 0;
+        long falsePositive = 0;
+
+        for (int i = scores.length - 1; i >= 0; --i) {
+            truePositive += positives[i];
+            falsePositive += negatives[i];
+
+            curve.add(new CurvePoint(scores[i], rate(falsePositive, negativesNumber),
+                    rate(truePositive, positivesNumber)));
+        }
+
+        return curve;
+    }
+
+    /**
+     * @return area under the ROC curve, documents of one bin count as half-ordered;
+     * NaN unless both classes are present
+     */
+    public double getAuc() {
+        if (positivesNumber == 0 || negativesNumber == 0)
+            return Double.NaN;
+
+        double area = 0;
+        long negativesBelow = 0;
+
+        // every positive outranks the negatives of lower bins and ties with its own bin
+        for (int i = 0; i < scores.length; ++i) {
+            area += positives[i] * (negativesBelow + 0.5 * negatives[i]);
+            negativesBelow += negatives[i];
+        }
+
+        return area / positivesNumber / negativesNumber;
+    }
+
+    /**
+     * @return precision-recall curve: x is the recall and y the precision of the documents with
+     * log-odds of at least the threshold
+     */
+    public List<CurvePoint> getPrecisionRecallCurve() {
+        List<CurvePoint> curve = new ArrayList<>(scores.length);
+
+        long truePositive = 0;
+        long falsePositive = 0;
+
+        for (int i = scores.length - 1; i >= 0; --i) {
+            truePositive += positives[i];
+            falsePositive += negatives[i];
+
+            curve.add(new CurvePoint(scores[i], rate(truePositive, positivesNumber),
+                    rate(truePositive, truePositive + falsePositive)));
+        }
+
+        return curve;
+    }
+
+    /**
+     * @return sum of the precisions weighted by the recall gains along the precision-recall curve
+     */
+    public double getAveragePrecision() {
+        if (positivesNumber == 0)
+            return Double.NaN;
+
+        double sum = 0;
+        double previousRecall = 0;
+
+        for (CurvePoint point : getPrecisionRecallCurve()) {
+            sum += (point.getX() - previousRecall) * point.getY();
+            previousRecall = point.getX();
+        }
+
+        return sum;
+    }
+
+    /**
+     * @return RELIABILITY_BUCKETS buckets of equal width over the predicted probability of the
+     * positive class, empty buckets included
+     */
+    public List<ReliabilityBucket> getReliabilityBuckets() {
+        long[] counts = new long[RELIABILITY_BUCKETS];
+        long[] bucketPositives = new long[RELIABILITY_BUCKETS];
+        double[] probabilitySums = new double[RELIABILITY_BUCKETS];
+
+        for (int i = 0; i < scores.length; ++i) {
+            double probability = sigmoid(scores[i]);
+            int bucket = Math.min((int) (probability * RELIABILITY_BUCKETS), RELIABILITY_BUCKETS - 1);
+            long count = positives[i] + negatives[i];
+
+            counts[bucket] += count;
+            bucketPositives[bucket] += positives[i];
+            probabilitySums[bucket] += probability * count;
+        }
+
+        List<ReliabilityBucket> buckets = new ArrayList<>(RELIABILITY_BUCKETS);
+
+        for (int bucket = 0; bucket < RELIABILITY_BUCKETS; ++bucket) {
+            buckets.add(new ReliabilityBucket((double) bucket / RELIABILITY_BUCKETS,
+                    (double) (bucket + 1) / RELIABILITY_BUCKETS, counts[bucket],
+                    rate(probabilitySums[bucket], counts[bucket]), rate(bucketPositives[bucket], counts[bucket])));
+        }
+
+        return buckets;
+    }
+
+    /**
+     * @return mean distance between predicted and observed positive rates over the reliability
+     * buckets, weighted by their document counts
+     */
+    public double getExpectedCalibrationError() {
+        long total = positivesNumber + negativesNumber;
+
+        if (total == 0)
+            return Double.NaN;
+
+        double error = 0;
+
+        for (ReliabilityBucket bucket : getReliabilityBuckets()) {
+            if (bucket.getCount() > 0)
+                error += (double) bucket.getCount() / total
+                        * Math.abs(bucket.getMeanPredicted() - bucket.getObservedPositive());
+        }
+
+        return error;
+    }
+
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        Formatter format = new Formatter(text, Locale.US);
+
+        text.append(matrix).append('\n');
+        format.format("AUC: %.4f%nAverage precision: %.4f%nExpected calibration error: %.4f%n",
+                getAuc(), getAveragePrecision(), getExpectedCalibrationError());
+        text.append("Reliability (predicted -> observed, documents):");
+
+        for (ReliabilityBucket bucket : getReliabilityBuckets()) {
+            if (bucket.getCount() > 0)
+                format.format("%n[%.1f, %.1f): %.3f -> %.3f, %d", bucket.getLower(), bucket.getUpper(),
+                        bucket.getMeanPredicted(), bucket.getObservedPositive(), bucket.getCount());
+        }
+
+        return text.toString();
+    }
+
+    private static double rate(double part, double total) {
+        return (total > 0) ? part / total : 0;
+    }
+
+    private static double sigmoid(double logOdds) {
+        return 1 / (1 + Math.exp(-logOdds));
+    }
+
+    /**
+     * Point of a curve with the log-odds threshold it was taken at.
+     */
+    public static class CurvePoint {
+        private final double threshold;
+        private final double x;
+        private final double y;
+
+        CurvePoint(double threshold, double x, double y) {
+            this.threshold = threshold;
+            this.x = x;
+            this.y = y;
+        }
+
+        public double getThreshold() { return this.threshold; }
+
+        public double getX() { return this.x; }
+
+        public double getY() { return this.y; }
+
+        public String toString() {
+            return String.format(Locale.US, "%.4f\t%.4f\t%.4f", threshold, x, y);
+        }
+    }
+
+    /**
+     * Documents whose predicted probability of the positive class falls into [lower, upper).
+     */
+    public static class ReliabilityBucket {
+        private final double lower;
+        private final double upper;
+        private final long count;
+        private final double meanPredicted;
+        private final double observedPositive;
+
+        ReliabilityBucket(double lower, double upper, long count, double meanPredicted, double observedPositive) {
+            this.lower = lower;
+            this.upper = upper;
+            this.count = count;
+            this.meanPredicted = meanPredicted;
+            this.observedPositive = observedPositive;
+        }
+
+        public double getLower() { return this.lower; }
+
+        public double getUpper() { return this.upper; }
+
+        public long getCount() { return this.count; }
+
+        public double getMeanPredicted() { return this.meanPredicted; }
+
+        /**
+         * @return share of the positive documents in the bucket
+         */
+        public double getObservedPositive() { return this.observedPositive; }
+    }
+}
@@ -0,0 +1,43 @@
+package classifiers;
+
+import java.util.*;
+
+/**
+ * Classification with the terms and patterns of the document which contributed
+ * most to each class. Unknown terms and patterns all contribute the same and are
+ * not listed.
+ */
+public class Explanation extends Classification {
+    private final List<TermContribution> positiveTerms;
+    private final List<TermContribution> negativeTerms;
+
+    public Explanation(double positiveScore, double negativeScore,
+                       List<TermContribution> positiveTerms, List<TermContribution> negativeTerms) {
+        super(positiveScore, negativeScore);
+
+        this.positiveTerms = Collections.unmodifiableList(new ArrayList<>(positiveTerms));
+        this.negativeTerms = Collections.unmodifiableList(new ArrayList<>(negativeTerms));
+    }
+
+    /**
+     * @return terms with the largest positive contributions, strongest first
+     */
+    public List<TermContribution> getPositiveTerms() { return this.positiveTerms; }
+
+    /**
+     * @return terms with the largest negative contributions, strongest first
+     */
+    public List<TermContribution> getNegativeTerms() { return this.negativeTerms; }
+
+    public String toString() {
+        StringBuilder text = new StringBuilder(super.toString());
+
+        text.append("\nPositive terms:");
+        positiveTerms.forEach(term -> text.append("\n  ").append(term));
+
+        text.append("\nNegative terms:");
+        negativeTerms.forEach(term -> text.append("\n  ").append(term));
+
+        return text.toString();
+    }
+}
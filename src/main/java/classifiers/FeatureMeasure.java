@@ -0,0 +1,15 @@
+package classifiers;
+
+/**
+ * Association of a term with the opinion of the documents, computed from the
+ * numbers of positive and negative documents containing the term.
+ */
+public enum FeatureMeasure {
+    CHI_SQUARE,
+    // pointwise mutual information with the closer class: a term seen in a single document
+    // of one class gets nearly the largest score, so it ranks rare terms first
+    POINTWISE_MUTUAL_INFORMATION,
+    // expected mutual information of term presence and class, the usual mutual information
+    // of feature selection
+    INFORMATION_GAIN
+}
@@ -0,0 +1,137 @@
+package classifiers;
+
+import corpus.Corpus;
+import util.Word;
+
+import java.util.*;
+import java.util.stream.IntStream;
+
+/**
+ * Selects the terms most associated with the document opinions by a FeatureMeasure
+ * over the per-class document numbers of the words. Words are scored in parallel,
+ * selected features are passed to NaiveBayes.selectFeatures.
+ *
+ * With a and b the positive and negative documents containing the term, c and d
+ * the ones without it and n all documents:
+ *
+ *   chi-square = n (ad - bc)^2 / ((a + b)(c + d)(a + c)(b + d))
+ *   pointwise mutual information = max(log(a n / ((a + b)(a + c))), log(b n / ((a + b)(b + d))))
+ *   information gain = sum over the four cells x of x/n log(x n / (row(x) column(x)))
+ *
+ * Information gain is the expected mutual information of term presence and class.
+ * The pointwise measure favours terms occurring in few documents of one class.
+ */
+public class FeatureSelector {
+    private final FeatureMeasure measure;
+
+    public FeatureSelector(FeatureMeasure measure) {
+        if (measure == null)
+            throw new IllegalArgumentException();
+
+        this.measure = measure;
+    }
+
+    public FeatureMeasure getMeasure() { return this.measure; }
+
+    /**
+     * @return scores of the words in their order
+     */
+    public double[] score(List<Word> words, int positiveDocsNumber, int negativeDocsNumber) {
+        List<Word> list = new ArrayList<>(words);
+        double[] scores = new double[list.size()];
+
+        IntStream.range(0, scores.length).parallel().forEach(i -> scores[i] = score(measure,
+                list.get(i).getPositiveDocsNumber(), list.get(i).getNegativeDocsNumber(),
+                positiveDocsNumber, negativeDocsNumber));
+
+        return scores;
+    }
+
+    /**
+     * @return at most featuresNumber words with the highest scores, best first; of equal scores
+     * the words earlier in the list are selected and listed first
+     */
+    public List<Word> selectTop(List<Word> words, int positiveDocsNumber, int negativeDocsNumber,
+                                int featuresNumber) {
+        if (featuresNumber < 0)
+            throw new IllegalArgumentException("Number of features cannot be negative: " + featuresNumber);
+
+        double[] scores = score(words, positiveDocsNumber, negativeDocsNumber);
+        TopTerms top = new TopTerms(Math.min(featuresNumber, scores.length));
+
+        for (int i = 0; i < scores.length; ++i) {
+            top.offer(scores[i], i);
+        }
+
+        List<Word> selected = new ArrayList<>(top.size());
+
+        for (int i : top.drainDescending()) {
+            selected.add(words.get(i));
+        }
+
+        return selected;
+    }
+
+    /**
+     * @return words scoring above the cutoff in their order
+     */
+    public List<Word> selectAbove(List<Word> words, int positiveDocsNumber, int negativeDocsNumber,
+                                  double cutoff) {
+        double[] scores = score(words, positiveDocsNumber, negativeDocsNumber);
+        List<Word> selected = new ArrayList<>();
+
+        for (int i = 0; i < scores.length; ++i) {
+            if (scores[i] > cutoff)
+                selected.add(words.get(i));
+        }
+
+        return selected;
+    }
+
+    public List<Word> selectTop(Corpus corpus, int featuresNumber) {
+        return selectTop(corpus.getWords(), corpus.getPositiveDocsNumber(), corpus.getNegativeDocsNumber(),
+                featuresNumber);
+    }
+
+    public List<Word> selectAbove(Corpus corpus, double cutoff) {
+        return selectAbove(corpus.getWords(), corpus.getPositiveDocsNumber(), corpus.getNegativeDocsNumber(),
+                cutoff);
+    }
+
+    /**
+     * @param positiveDocs positive documents containing the term
+     * @param negativeDocs negative documents containing the term
+     */
+    static double score(FeatureMeasure measure, double positiveDocs, double negativeDocs,
+                        double positiveDocsNumber, double negativeDocsNumber) {
+        double a = positiveDocs;
+        double b = negativeDocs;
+        double c = positiveDocsNumber - positiveDocs;
+        double d = negativeDocsNumber - negativeDocs;
+        double n = a + b + c + d;
+
+        if (a + b == 0 || c + d == 0 || a + c == 0 || b + d == 0)
+            return 0;
+
+        switch (measure) {
+            case CHI_SQUARE:
+                double difference = a * d - b * c;
+
+                return n * difference * difference / ((a + b) * (c + d) * (a + c) * (b + d));
+            case POINTWISE_MUTUAL_INFORMATION:
+                double positive = (a > 0) ? Math.log(a * n / ((a + b) * (a + c))) : Double.NEGATIVE_INFINITY;
+                double negative = (b > 0) ? Math.log(b * n / ((a + b) * (b + d))) : Double.NEGATIVE_INFINITY;
+
+                return Math.max(positive, negative);
+            case INFORMATION_GAIN:
+                return cell(a, a + b, a + c, n) + cell(b, a + b, b + d, n)
+                        + cell(c, c + d, a + c, n) + cell(d, c + d, b + d, n);
+            default:
+                throw new IllegalArgumentException("Unknown measure " + measure);
+        }
+    }
+
+    private static double cell(double count, double row, double column, double n) {
+        return (count > 0) ? count / n * Math.log(count * n / (row * column)) : 0;
+    }
+}
@@ -0,0 +1,103 @@
+package classifiers;
+
+import corpus.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Naive Bayes over hashed features: terms and patterns are hashed by a
+ * HashingVectorizer into a fixed number of buckets, so training needs no
+ * vocabulary and no documents in memory, and every variant takes a fixed
+ * amount of memory regardless of the corpus size.
+ */
+public class HashedNaiveBayes {
+    private final HashingVectorizer vectorizer;
+    private final Annotator annotator;
+
+    private final Map<NaiveBayesType, NaiveBayesModel> models;
+
+    public HashedNaiveBayes(HashingVectorizer vectorizer) {
+        this(vectorizer, new CoreNLPAnnotator());
+    }
+
+    public HashedNaiveBayes(HashingVectorizer vectorizer, Annotator annotator) {
+        this.vectorizer = vectorizer;
+        this.annotator = annotator;
+        this.models = new EnumMap<>(NaiveBayesType.class);
+
+        for (NaiveBayesType type : NaiveBayesType.values()) {
+            models.put(type, newModel(vectorizer, type));
+        }
+    }
+
+    /**
+     * Learns every document of a corpus file in one pass, holding one text at a time.
+     *
+     * @return number of learned documents
+     */
+    public int learn(File corpusFile, DocumentOpinion opinion) {
+        int documentsNumber = 0;
+
+        try (CorpusReader reader = new CorpusReader(corpusFile)) {
+            while (reader.hasNext()) {
+                learn(reader.next(), opinion);
+                ++documentsNumber;
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
+        return documentsNumber;
+    }
+
+    public void learn(String text, DocumentOpinion opinion) {
+        learn(vectorizer.vectorize(annotator.annotate(text)), opinion);
+    }
+
+    /**
+     * Adds one document to both variants, they stay ready for scoring.
+     * Must not run concurrently with classification.
+     */
+    public synchronized void learn(HashedVector document, DocumentOpinion opinion) {
+        TermVector vector = document.toTermVector();
+
+        for (NaiveBayesModel model : models.values()) {
+            model.learn(vector, opinion);
+        }
+    }
+
+    public DocumentOpinion classify(String text, NaiveBayesType type) {
+        return score(text, type).getOpinion();
+    }
+
+    public Classification score(String text, NaiveBayesType type) {
+        return score(vectorizer.vectorize(annotator.annotate(text)), type);
+    }
+
+    public Classification score(HashedVector document, NaiveBayesType type) {
+        if (type == null)
+            throw new IllegalArgumentException();
+
+        NaiveBayesModel model = models.get(type);
+
+        if (!model.isTrained())
+            throw new IllegalStateException("Classifier " + type + " is not trained");
+
+        return NaiveBayes.score(model, document.toTermVector());
+    }
+
+    public HashingVectorizer getVectorizer() { return this.vectorizer; }
+
+    /**
+     * @return bytes taken by the weights and counts of one variant, fixed by the number of buckets
+     */
+    public long getModelBytes() {
+        return models.get(NaiveBayesType.MULTINOMIAL).getBytes();
+    }
+
+    static NaiveBayesModel newModel(HashingVectorizer vectorizer, NaiveBayesType type) {
+        return new NaiveBayesModel(type, vectorizer.getBucketsNumber());
+    }
+}
@@ -0,0 +1,31 @@
+package classifiers;
+
+/**
+ * Features of one document hashed into buckets: distinct bucket ids in ascending
+ * order and the number of feature occurrences in every bucket.
+ */
+public class HashedVector {
+    private final int[] buckets;
+    private final int[] counts;
+
+    HashedVector(int[] buckets, int[] counts) {
+        this.buckets = buckets;
+        this.counts = counts;
+    }
+
+    /**
+     * @return distinct bucket ids in ascending order, must not be modified
+     */
+    public int[] getBuckets() { return this.buckets; }
+
+    /**
+     * @return occurrences of the features hashed into each bucket, must not be modified
+     */
+    public int[] getCounts() { return this.counts; }
+
+    public int size() { return this.buckets.length; }
+
+    TermVector toTermVector() {
+        return new TermVector(buckets, counts);
+    }
+}
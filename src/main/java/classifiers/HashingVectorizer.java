@@ -0,0 +1,162 @@
+package classifiers;
+
+import corpus.Document;
+import corpus.Patterns;
+import corpus.SpecialWordFilter;
+import corpus.Token;
+import util.LongIntMap;
+import util.POS;
+import util.Vocabulary;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Hashes (lemma, POS) terms and optionally adjacent-word patterns into a fixed
+ * number of buckets, so documents are vectorized without a vocabulary. Colliding
+ * features add up their occurrences, the class counts of Naive Bayes cannot take
+ * signed values. Safe for concurrent use.
+ */
+public class HashingVectorizer {
+    private static final long FNV_OFFSET = 0xCBF29CE484222325L;
+    private static final long FNV_PRIME = 0x100000001B3L;
+
+    private final int bucketsNumber;
+    private final boolean patternFeatures;
+    private final SpecialWordFilter filter;
+
+    public HashingVectorizer(int bucketsNumber, boolean patternFeatures, SpecialWordFilter filter) {
+        if (bucketsNumber < 1)
+            throw new IllegalArgumentException("Number of buckets must be positive: " + bucketsNumber);
+
+        this.bucketsNumber = bucketsNumber;
+        this.patternFeatures = patternFeatures;
+        this.filter = filter;
+    }
+
+    public int getBucketsNumber() { return this.bucketsNumber; }
+
+    public boolean hasPatternFeatures() { return this.patternFeatures; }
+
+    /**
+     * Vectorizes annotated sentences, terms are selected like in Document.
+     */
+    public HashedVector vectorize(List<List<Token>> sentences) {
+        Accumulator accumulator = new Accumulator();
+
+        for (List<Token> sentence : sentences) {
+            Token previous = null;
+            long previousHash = 0;
+
+            for (Token token : sentence) {
+                POS pos = POS.fromString(token.getTag());
+                String lemma = token.getLemma().trim().toLowerCase();
+                boolean term = pos != POS.UNKNOWN && !filter.contains(lemma);
+                long hash = term ? hash(lemma, pos) : 0;
+
+                if (term) {
+                    accumulator.add(hash, 1);
+
+                    if (patternFeatures && previous != null && Patterns.matches(previous.getTag(), token.getTag()))
+                        accumulator.add(patternHash(previousHash, hash), 1);
+                }
+
+                previous = term ? token : null;
+                previousHash = hash;
+            }
+        }
+
+        return accumulator.toVector();
+    }
+
+    /**
+     * Vectorizes a parsed document through the lemmas of its vocabulary, the result equals
+     * the one of its annotated sentences.
+     */
+    public HashedVector vectorize(Document document) {
+        Vocabulary vocabulary = document.getVocabulary();
+        int[] termIds = document.getTermIds();
+        int[] counts = document.getCounts();
+        Accumulator accumulator = new Accumulator();
+
+        for (int i = 0; i < termIds.length; ++i) {
+            String lemma = vocabulary.getLemma(termIds[i]);
+
+            if (!filter.contains(lemma))
+                accumulator.add(hash(lemma, vocabulary.getPOS(termIds[i])), counts[i]);
+        }
+
+        if (patternFeatures) {
+            long[] keys = document.getPatternKeys();
+            int[] patternCounts = document.getPatternCounts();
+
+            for (int i = 0; i < keys.length; ++i) {
+                int firstId = Patterns.firstId(keys[i]);
+                int secondId = Patterns.secondId(keys[i]);
+                String firstLemma = vocabulary.getLemma(firstId);
+                String secondLemma = vocabulary.getLemma(secondId);
+
+                if (filter.contains(firstLemma) || filter.contains(secondLemma))
+                    continue;
+
+                long hash = patternHash(hash(firstLemma, vocabulary.getPOS(firstId)),
+                        hash(secondLemma, vocabulary.getPOS(secondId)));
+                accumulator.add(hash, patternCounts[i]);
+            }
+        }
+
+        return accumulator.toVector();
+    }
+
+    private int bucket(long hash) {
+        return (int) Long.remainderUnsigned(hash, bucketsNumber);
+    }
+
+    private static long hash(String lemma, POS pos) {
+        long hash = FNV_OFFSET;
+
+        for (int i = 0; i < lemma.length(); ++i) {
+            hash = (hash ^ lemma.charAt(i)) * FNV_PRIME;
+        }
+
+        return mix((hash ^ pos.ordinal()) * FNV_PRIME);
+    }
+
+    private static long patternHash(long firstHash, long secondHash) {
+        return mix(firstHash * 31 + secondHash + 0x9E3779B97F4A7C15L);
+    }
+
+    // final avalanche of MurmurHash3, so that all bits depend on the whole input
+    private static long mix(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xFF51AFD7ED558CCDL;
+        hash ^= hash >>> 33;
+        hash *= 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+
+        return hash;
+    }
+
+    private class Accumulator {
+        // bucket -> occurrences
+        private final LongIntMap counts = new LongIntMap();
+
+        void add(long hash, int count) {
+            counts.add(bucket(hash), count);
+        }
+
+        HashedVector toVector() {
+            long[] keys = counts.sortedKeys();
+
+            int[] buckets = new int[keys.length];
+            int[] bucketCounts = new int[keys.length];
+
+            for (int i = 0; i < keys.length; ++i) {
+                buckets[i] = (int) keys[i];
+                bucketCounts[i] = counts.get(keys[i], 0);
+            }
+
+            return new HashedVector(buckets, bucketCounts);
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package classifiers;
+
+import util.POS;
+import util.Vocabulary;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary model file of a trained NaiveBayes classifier.
+ *
+ * Layout (big-endian): magic, version, smoothing scheme, closed vocabulary flag, vocabulary as
+ * (POS, UTF-8 lemma) entries in term id order, pattern keys in pattern id
+ * order, then one section per variant written by NaiveBayesModel.write.
+ * Version 1 files have neither pattern keys nor pattern models, versions 1 and 2 have no flag. Per-term arrays are 8-byte
+ * aligned, so the loaded models read them straight from the mapped file.
+ */
+final class ModelFile {
+    private static final int MAGIC = 0x4E424D46; // "NBMF"
+    private static final int VERSION = 3;
+
+    // max(frequency, 1) / (total + vocabulary + 1), see NaiveBayesModel
+    static final byte SMOOTHING_ABSENT_AS_ONE = 1;
+
+    private static final int ALIGNMENT = 8;
+
+    private final Vocabulary vocabulary;
+    private final PatternIndex patterns;
+    private final List<NaiveBayesModel> models;
+
+    // whether the vocabulary holds selected features only, see NaiveBayes.selectFeatures
+    private final boolean closedVocabulary;
+
+    private ModelFile(Vocabulary vocabulary, PatternIndex patterns, List<NaiveBayesModel> models,
+                      boolean closedVocabulary) {
+        this.vocabulary = vocabulary;
+        this.patterns = patterns;
+        this.models = models;
+        this.closedVocabulary = closedVocabulary;
+    }
+
+    Vocabulary getVocabulary() { return this.vocabulary; }
+
+    PatternIndex getPatterns() { return this.patterns; }
+
+    List<NaiveBayesModel> getModels() { return this.models; }
+
+    boolean isClosedVocabulary() { return this.closedVocabulary; }
+
+    static void write(Path path, Vocabulary vocabulary, PatternIndex patterns,
+                      List<NaiveBayesModel> models, boolean closedVocabulary) throws IOException {
+        int termsNumber = vocabulary.size();
+        int patternsNumber = patterns.size();
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(path.toFile())))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeByte(SMOOTHING_ABSENT_AS_ONE);
+            out.writeBoolean(closedVocabulary);
+            out.writeInt(termsNumber);
+
+            for (int termId = 0; termId < termsNumber; ++termId) {
+                byte[] lemma = vocabulary.getLemma(termId).getBytes(StandardCharsets.UTF_8);
+
+                out.writeByte(vocabulary.getPOS(termId).ordinal());
+                out.writeShort(lemma.length);
+                out.write(lemma);
+            }
+
+            out.writeInt(patternsNumber);
+
+            for (int patternId = 0; patternId < patternsNumber; ++patternId) {
+                out.writeLong(patterns.getKey(patternId));
+            }
+
+            out.writeInt(models.size());
+            align(out);
+
+            for (NaiveBayesModel model : models) {
+                model.write(out, termsNumber, patternsNumber);
+            }
+        }
+    }
+
+    static ModelFile read(Path path) throws IOException {
+        MappedByteBuffer buffer;
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+
+        if (buffer.getInt() != MAGIC)
+            throw new IOException("Not a model file: " + path);
+
+        int version = buffer.getInt();
+        if (version < 1 || version > VERSION)
+            throw new IOException("Unsupported model file version " + version + ": " + path);
+
+        byte smoothing = buffer.get();
+        if (smoothing != SMOOTHING_ABSENT_AS_ONE)
+            throw new IOException("Unsupported smoothing scheme " + smoothing + ": " + path);
+
+        boolean closedVocabulary = (version >= 3) && buffer.get() != 0;
+
+        int termsNumber = buffer.getInt();
+        Vocabulary vocabulary = new Vocabulary();
+        POS[] poses = POS.values();
+        byte[] lemma = new byte[256];
+
+        for (int termId = 0; termId < termsNumber; ++termId) {
+            POS pos = poses[buffer.get()];
+            int length = buffer.getShort() & 0xFFFF;
+
+            if (length > lemma.length)
+                lemma = new byte[length];
+
+            buffer.get(lemma, 0, length);
+
+            // the vocabulary is new, so the ids are assigned in file order
+            vocabulary.getId(new String(lemma, 0, length, StandardCharsets.UTF_8), pos);
+        }
+
+        PatternIndex patterns = new PatternIndex();
+        int patternsNumber = (version >= 2) ? buffer.getInt() : 0;
+
+        for (int patternId = 0; patternId < patternsNumber; ++patternId) {
+            patterns.getId(buffer.getLong());
+        }
+
+        int modelsNumber = buffer.getInt();
+        align(buffer);
+
+        List<NaiveBayesModel> models = new ArrayList<>(modelsNumber);
+
+        for (int i = 0; i < modelsNumber; ++i) {
+            models.add(NaiveBayesModel.read(buffer, version >= 2));
+        }
+
+        return new ModelFile(vocabulary, patterns, models, closedVocabulary);
+    }
+
+    static void align(DataOutputStream out) throws IOException {
+        while (out.size() % ALIGNMENT != 0)
+            out.writeByte(0);
+    }
+
+    static void align(ByteBuffer buffer) {
+        int remainder = buffer.position() % ALIGNMENT;
+
+        if (remainder != 0)
+            buffer.position(buffer.position() + ALIGNMENT - remainder);
+    }
+}
@@ -1,79 +1,364 @@
 package classifiers;
 
-import corpus.Corpus;
-import corpus.Document;
-import corpus.DocumentOpinion;
-import corpus.SpecialWordType;
+import corpus.*;
+import util.Metrics;
+import util.POS;
+import util.Utils;
+import util.Vocabulary;
 import util.Word;
 
+import java.io.IOException;
+import java.text.BreakIterator;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Created by artem95 on 19.05.16.
  */
 public class NaiveBayes {
-    private Map<Word, Double> positiveMultinomialProbabilities;
-    private Map<Word, Double> negativeMultinomialProbabilities;
+    private static final int FOLDS_NUMBER = 5;
 
-    private Map<Word, Double> positiveBinaryProbabilities;
-    private Map<Word, Double> negativeBinaryProbabilities;
+    private Map<NaiveBayesType, NaiveBayesModel> models;
 
-    private double positiveDocumentProbability;
-    private double negativeDocumentProbability;
+    private Vocabulary vocabulary;
 
-    private static final String UNKNOWN_WORD = "UNKNOWN_WORD";
+    private PatternIndex patterns;
+
+    // whether new models also count the patterns of the documents
+    private boolean patternFeatures;
+
+    // classifier term id -> feature id after selectFeatures, null while every term is a feature
+    private int[] featureIds;
+
+    // feature id -> classifier term id
+    private int[] selectedTermIds;
+
+    // stop words are skipped while scoring instead of being removed from the classified documents
+    private final SpecialWordFilter stopWords;
 
     public NaiveBayes() {
-        this.positiveMultinomialProbabilities = new HashMap<>();
-        this.negativeMultinomialProbabilities = new HashMap<>();
-        this.positiveBinaryProbabilities = new HashMap<>();
-        this.negativeBinaryProbabilities = new HashMap<>();
+        this.models = new EnumMap<>(NaiveBayesType.class);
+        this.vocabulary = new Vocabulary();
+        this.patterns = new PatternIndex();
+        this.stopWords = SpecialWordFilter.get(SpecialWordType.STOP_WORD);
     }
 
     public DocumentOpinion classify(Document document, NaiveBayesType type) {
-        document.removeSpecialWords(SpecialWordType.STOP_WORD);
-        List<Word> words = document.getWords();
-
-        Map<Word, Double> positiveMap;
-        Map<Word, Double> negativeMap;
-
-        if (type == NaiveBayesType.MULTINOMIAL) {
-            positiveMap = positiveMultinomialProbabilities;
-            negativeMap = negativeMultinomialProbabilities;
-        } else if (type == NaiveBayesType.BINARY) {
-            positiveMap = positiveBinaryProbabilities;
-            negativeMap = negativeBinaryProbabilities;
+        long start = Metrics.start();
+        NaiveBayesModel model = getModel(type);
+        TermVector vector = vectorize(document);
+        double logOdds = model.logOdds(vector);
+
+        countClassified(model, vector);
+        Metrics.stop(Metrics.CLASSIFICATION, start);
+
+        if (logOdds > 0) {
+            return DocumentOpinion.POSITIVE;
         } else {
-            throw new IllegalArgumentException();
+            return DocumentOpinion.NEGATIVE;
         }
+    }
+
+    /**
+     * Classifies the document without modifying it or the classifier.
+     */
+    public Classification score(Document document, NaiveBayesType type) {
+        return score(getModel(type), document);
+    }
 
-        Word unknownWord = new Word();
-        unknownWord.setWord(UNKNOWN_WORD);
+    /**
+     * Classifies the documents in parallel on the common fork/join pool.
+     *
+     * @return classifications in the iteration order of the documents
+     */
+    public List<Classification> classifyAll(Collection<Document> documents, NaiveBayesType type) {
+        NaiveBayesModel model = getModel(type);
+
+        return new ArrayList<>(documents).parallelStream()
+                .map(document -> score(model, document))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @return parallel stream of classifications, ordered like the documents if they are ordered
+     */
+    public Stream<Classification> classifyStream(Stream<Document> documents, NaiveBayesType type) {
+        NaiveBayesModel model = getModel(type);
+
+        return documents.parallel().map(document -> score(model, document));
+    }
+
+    /**
+     * Classifies the document and finds its k terms or patterns contributing most
+     * to each class in O(n log k) over its n terms.
+     */
+    public Explanation explain(Document document, NaiveBayesType type, int k) {
+        return explain(getModel(type), document, k);
+    }
 
-        double positiveProbability = 0;
-        double negativeProbability = 0;
+    /**
+     * Explains the documents in parallel on the common fork/join pool.
+     *
+     * @return explanations in the iteration order of the documents
+     */
+    public List<Explanation> explainAll(Collection<Document> documents, NaiveBayesType type, int k) {
+        NaiveBayesModel model = getModel(type);
+
+        return new ArrayList<>(documents).parallelStream()
+                .map(document -> explain(model, document, k))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Classifies the text with the shared CoreNLP pipeline and Utils.STREAMING_MARGIN_SCALE.
+     */
+    public StreamingClassification classifyStreaming(String text, NaiveBayesType type) {
+        return classifyStreaming(text, type, new CoreNLPAnnotator(), Utils.STREAMING_MARGIN_SCALE);
+    }
+
+    /**
+     * Annotates and scores the text one sentence at a time and stops once the log-odds
+     * margin exceeds marginScale * (largest contribution of one term) * (estimated number
+     * of new features in the rest of the text). The estimate extrapolates the rate of new
+     * features per character seen so far, but never below Utils.STREAMING_MIN_FEATURE_DENSITY,
+     * so it is a guess and not a bound: a rest of the text denser in new features, all
+     * voting against the decision at full strength, could still flip it. Nothing stops
+     * before one feature known to the model and Utils.STREAMING_MIN_PROCESSED_SHARE of
+     * the text were seen, so a featureless first sentence never returns the prior.
+     * Smaller marginScale values stop earlier.
+     */
+    public StreamingClassification classifyStreaming(String text, NaiveBayesType type,
+                                                     Annotator annotator, double marginScale) {
+        long start = Metrics.start();
+        NaiveBayesModel model = getModel(type);
+        NaiveBayesModel patternModel = model.getPatterns();
+
+        double maxContribution = model.getMaxTermContribution();
+        if (patternModel != null)
+            maxContribution = Math.max(maxContribution, patternModel.getMaxTermContribution());
+
+        // the document is scored over its distinct terms and patterns, unknown ones included
+        Set<String> seenFeatures = new HashSet<>();
+        int[] termIds = new int[64];
+        int termsNumber = 0;
+        int[] patternIds = new int[16];
+        int patternsNumber = 0;
+
+        double logOdds = model.getLogPriorRatio();
+        int knownFeatures = 0;
+        int processedChars = 0;
+        int processedSentences = 0;
+
+        BreakIterator sentences = BreakIterator.getSentenceInstance(Locale.US);
+        sentences.setText(text);
+
+        for (int end = sentences.next(); end != BreakIterator.DONE; end = sentences.next()) {
+            String sentence = text.substring(processedChars, end);
+            processedChars = end;
+
+            if (sentence.trim().isEmpty())
+                continue;
+
+            ++processedSentences;
+
+            for (List<Token> tokens : annotator.annotate(sentence)) {
+                Token previous = null;
+                String previousFeature = null;
+
+                for (Token token : tokens) {
+                    POS pos = POS.fromString(token.getTag());
+                    String lemma = token.getLemma().trim().toLowerCase();
+                    String feature = null;
+
+                    if (pos != POS.UNKNOWN && !stopWords.contains(lemma)) {
+                        feature = pos.ordinal() + lemma;
+
+                        int termId = toFeatureId(vocabulary.findId(lemma, pos));
+
+                        if ((termId != Vocabulary.UNKNOWN_ID || featureIds == null) && seenFeatures.add(feature)) {
+                            if (termsNumber == termIds.length)
+                                termIds = Arrays.copyOf(termIds, 2 * termsNumber);
+
+                            termIds[termsNumber++] = termId;
+                            logOdds += model.termContribution(termId);
+
+                            if (model.isKnown(termId))
+                                ++knownFeatures;
+                            else if (Metrics.isEnabled())
+                                Metrics.increment(Metrics.UNKNOWN_TERMS);
+                        }
+
+                        if (patternModel != null && previousFeature != null
+                                && Patterns.matches(previous.getTag(), token.getTag())
+                                && seenFeatures.add(previousFeature + " " + feature)) {
+                            int patternId = findPatternId(previous, token);
+
+                            if (patternId != PatternIndex.UNKNOWN_ID || featureIds == null) {
+                                if (patternsNumber == patternIds.length)
+                                    patternIds = Arrays.copyOf(patternIds, 2 * patternsNumber);
+
+                                patternIds[patternsNumber++] = patternId;
+                                logOdds += patternModel.termContribution(patternId);
+
+                                if (patternModel.isKnown(patternId))
+                                    ++knownFeatures;
+                            }
+                        }
+                    }
+
+                    previous = token;
+                    previousFeature = feature;
+                }
+            }
 
-        for (Word word : words) {
-            double wordPositiveProbability = (positiveMap.containsKey(word)) ?
-                    positiveMap.get(word) : positiveMap.get(unknownWord);
-            double wordNegativeProbability = (negativeMap.containsKey(word)) ?
-                    negativeMap.get(word) : negativeMap.get(unknownWord);
+            if (knownFeatures == 0 || processedChars < Utils.STREAMING_MIN_PROCESSED_SHARE * text.length())
+                continue;
 
-            positiveProbability += Math.log(wordPositiveProbability);
-            negativeProbability += Math.log(wordNegativeProbability);
+            int remainingChars = text.length() - processedChars;
+            double featureDensity = Math.max((double) (termsNumber + patternsNumber) / processedChars,
+                    Utils.STREAMING_MIN_FEATURE_DENSITY);
+
+            if (Math.abs(logOdds) > marginScale * maxContribution * featureDensity * remainingChars)
+                break;
         }
 
-        positiveProbability += Math.log(positiveDocumentProbability);
-        negativeProbability += Math.log(negativeDocumentProbability);
+        // final scores are summed like for a whole document, so a full pass matches score()
+        termIds = Arrays.copyOf(termIds, termsNumber);
+        patternIds = Arrays.copyOf(patternIds, patternsNumber);
+        Arrays.sort(termIds);
+        Arrays.sort(patternIds);
 
-        if (positiveProbability > negativeProbability) {
-            return DocumentOpinion.POSITIVE;
-        } else {
-            return DocumentOpinion.NEGATIVE;
+        TermVector document = new TermVector(termIds, new int[termsNumber],
+                new TermVector(patternIds, new int[patternsNumber]));
+
+        StreamingClassification classification = new StreamingClassification(model.positiveLogScore(document),
+                model.negativeLogScore(document), processedChars, text.length(), processedSentences);
+
+        Metrics.increment(Metrics.CLASSIFIED_DOCUMENTS);
+        Metrics.stop(Metrics.CLASSIFICATION, start);
+
+        return classification;
+    }
+
+    /**
+     * Adds one labeled document to both classifier variants. The cost depends on the
+     * document length only and the result equals a full retraining with the document.
+     * Must not run concurrently with classification.
+     */
+    public synchronized void partialFit(Document document, DocumentOpinion opinion) {
+        long start = Metrics.start();
+        adoptVocabulary(document);
+        TermVector vector = vectorize(document, true);
+
+        for (NaiveBayesType type : NaiveBayesType.values()) {
+            models.computeIfAbsent(type, this::newModel).learn(vector, opinion);
+        }
+
+        Metrics.stop(Metrics.LEARNING, start);
+        registerGauges();
+    }
+
+    /**
+     * Removes a document learned with its current opinion.
+     */
+    public void forget(Document document) {
+        forget(document, document.getOpinion());
+    }
+
+    /**
+     * Removes a document learned with the given opinion from both classifier variants.
+     *
+     * @throws IllegalStateException if the class counts are too small to contain the document
+     */
+    public synchronized void forget(Document document, DocumentOpinion opinion) {
+        TermVector vector = vectorize(document);
+
+        // both variants are checked first, so a failed removal leaves the classifier unchanged
+        for (NaiveBayesType type : NaiveBayesType.values()) {
+            NaiveBayesModel model = models.get(type);
+
+            if (model == null)
+                throw new IllegalStateException("Classifier " + type + " is not trained");
+
+            model.checkRemovable(vector, opinion);
+        }
+
+        for (NaiveBayesType type : NaiveBayesType.values()) {
+            models.get(type).unlearn(vector, opinion);
+        }
+    }
+
+    /**
+     * Saves the vocabulary and trained variants into a binary model file.
+     */
+    public void saveModel(String fileAddress) {
+        try {
+            List<NaiveBayesModel> variants = new ArrayList<>(models.values());
+
+            if (featureIds == null) {
+                ModelFile.write(Paths.get(fileAddress), vocabulary, patterns, variants, false);
+                return;
+            }
+
+            // the file vocabulary holds the selected terms only, numbered by their feature ids
+            Vocabulary features = new Vocabulary();
+            PatternIndex featurePatterns = new PatternIndex();
+
+            for (int termId : selectedTermIds) {
+                features.getId(vocabulary.getLemma(termId), vocabulary.getPOS(termId));
+            }
+
+            for (int patternId = 0; patternId < patterns.size(); ++patternId) {
+                long key = patterns.getKey(patternId);
+
+                featurePatterns.getId(Patterns.key(featureIds[Patterns.firstId(key)],
+                        featureIds[Patterns.secondId(key)]));
+            }
+
+            ModelFile.write(Paths.get(fileAddress), features, featurePatterns, variants, true);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Replaces the classifier state with a model file. The file is memory-mapped and the
+     * weights are read from it in place, only the vocabulary is rebuilt on the heap.
+     */
+    public void loadModel(String fileAddress) {
+        try {
+            ModelFile file = ModelFile.read(Paths.get(fileAddress));
+
+            models.clear();
+            file.getModels().forEach(this::setModel);
+            vocabulary = file.getVocabulary();
+            patterns = file.getPatterns();
+            patternFeatures = file.getModels().stream().anyMatch(NaiveBayesModel::hasPatternFeatures);
+
+            // the vocabulary of a selected model holds its features only, numbered by their ids
+            if (file.isClosedVocabulary()) {
+                featureIds = identity(vocabulary.size());
+                selectedTermIds = identity(vocabulary.size());
+            } else {
+                featureIds = null;
+                selectedTermIds = null;
+            }
+
+            registerGauges();
+        } catch (IOException e) {
+            e.printStackTrace();
         }
     }
 
     public void learn(Corpus corpus, int crossValidationShift) {
+        if (featureIds == null)
+            this.vocabulary = corpus.getVocabulary();
+
+        this.patterns = new PatternIndex();
+        this.patternFeatures = corpus.hasPatternFeatures();
+
         corpus.removeSpecialWords(SpecialWordType.STOP_WORD);
         //corpus.removeInsignificantWords();
 
@@ -83,16 +368,13 @@ public class NaiveBayes {
         //List<Document> positiveTrainingSet = positiveDocuments.subList(0, (int)(0.8 * positiveDocuments.size()));
         //List<Document> negativeTrainingSet = negativeDocuments.subList(0, (int)(0.8 * negativeDocuments.size()));
 
-        double testingSetStart = 0.2 * crossValidationShift;
-
         List<Document> positiveTrainingSet = new ArrayList<>();
         List<Document> negativeTrainingSet = new ArrayList<>();
         List<Document> positiveTestingSet = new ArrayList<>();
         List<Document> negativeTestingSet = new ArrayList<>();
 
         for (int i = 0; i < positiveDocuments.size(); ++i) {
-            if (i >= testingSetStart * positiveDocuments.size() &&
-                    i < testingSetStart * positiveDocuments.size() + 0.2 * positiveDocuments.size()) {
+            if (CrossValidation.isInTestingFold(i, positiveDocuments.size(), crossValidationShift, FOLDS_NUMBER)) {
                 positiveTestingSet.add(positiveDocuments.get(i));
             } else {
                 positiveTrainingSet.add(positiveDocuments.get(i));
@@ -100,8 +382,7 @@ public class NaiveBayes {
         }
 
         for (int i = 0; i < negativeDocuments.size(); ++i) {
-            if (i >= testingSetStart * negativeDocuments.size() &&
-                    i < testingSetStart * negativeDocuments.size() + 0.2 * negativeDocuments.size()) {
+            if (CrossValidation.isInTestingFold(i, negativeDocuments.size(), crossValidationShift, FOLDS_NUMBER)) {
                 negativeTestingSet.add(negativeDocuments.get(i));
             } else {
                 negativeTrainingSet.add(negativeDocuments.get(i));
@@ -109,147 +390,450 @@ public class NaiveBayes {
         }
 
         System.out.println("\nMultinomial classifier:");
+        System.out.println("Learning...");
         learn(positiveTrainingSet, negativeTrainingSet, NaiveBayesType.MULTINOMIAL);
-        test(positiveTestingSet, negativeTestingSet, NaiveBayesType.MULTINOMIAL);
+        System.out.println("Learning finished.");
+        System.out.println("Testing...");
+        printTestingResults(test(positiveTestingSet, negativeTestingSet, NaiveBayesType.MULTINOMIAL));
 
         System.out.println("\nBinary classifier:");
+        System.out.println("Learning...");
         learn(positiveTrainingSet, negativeTrainingSet, NaiveBayesType.BINARY);
-        test(positiveTestingSet, negativeTestingSet, NaiveBayesType.BINARY);
+        System.out.println("Learning finished.");
+        System.out.println("Testing...");
+        printTestingResults(test(positiveTestingSet, negativeTestingSet, NaiveBayesType.BINARY));
     }
 
-    private void learn(List<Document> positiveTrainingSet, List<Document> negativeTrainingSet, NaiveBayesType type) {
-        System.out.println("Learning...");
+    /**
+     * Trains both classifier variants on the given documents only, without the
+     * testing and printing of learn(Corpus, int).
+     */
+    public void learn(List<Document> positiveTrainingSet, List<Document> negativeTrainingSet) {
+        if (!positiveTrainingSet.isEmpty())
+            adoptVocabulary(positiveTrainingSet.get(0));
 
-        if (type == NaiveBayesType.MULTINOMIAL) {
-            this.positiveMultinomialProbabilities.clear();
-            this.negativeMultinomialProbabilities.clear();
-        } else if (type == NaiveBayesType.BINARY) {
-            this.negativeBinaryProbabilities.clear();
-            this.positiveBinaryProbabilities.clear();
-        }
-
-        double totalNumberOfDocuments = positiveTrainingSet.size() + negativeTrainingSet.size();
-        positiveDocumentProbability = positiveTrainingSet.size() / totalNumberOfDocuments;
-        negativeDocumentProbability = negativeTrainingSet.size() / totalNumberOfDocuments;
-
-        Map<Word, Integer> positiveWordsFrequencies = getWordsFrequencies(positiveTrainingSet, type);
-        Map<Word, Integer> negativeWordsFrequencies = getWordsFrequencies(negativeTrainingSet, type);
-
-        Set<Word> allWords = new HashSet<>();
-        allWords.addAll(positiveWordsFrequencies.keySet());
-        allWords.addAll(negativeWordsFrequencies.keySet());
-
-        int positiveVocabularySize = positiveWordsFrequencies.size() + 1; // 1 is for UNKNOWN_WORD
-        int negativeVocabularySize = negativeWordsFrequencies.size() + 1; // 1 is for UNKNOWN_WORD
-        int totalPositiveWordsCount = getTotalNumberOfWordsPerClass(positiveWordsFrequencies);
-        int totalNegativeWordsCount = getTotalNumberOfWordsPerClass(negativeWordsFrequencies);
-
-        for (Word word : allWords) {
-            double positiveFrequency = (positiveWordsFrequencies.containsKey(word)) ?
-                    positiveWordsFrequencies.get(word) : 1;
-            double negativeFrequency = (negativeWordsFrequencies.containsKey(word)) ?
-                    negativeWordsFrequencies.get(word) : 1;
-
-            double positiveProbability = positiveFrequency / (totalPositiveWordsCount + positiveVocabularySize);
-            double negativeProbability = negativeFrequency / (totalNegativeWordsCount + negativeVocabularySize);
-
-            if (type == NaiveBayesType.MULTINOMIAL) {
-                positiveMultinomialProbabilities.put(word, positiveProbability);
-                negativeMultinomialProbabilities.put(word, negativeProbability);
-            } else if (type == NaiveBayesType.BINARY) {
-                positiveBinaryProbabilities.put(word, positiveProbability);
-                negativeBinaryProbabilities.put(word, negativeProbability);
-            }
+        for (NaiveBayesType type : NaiveBayesType.values()) {
+            learn(positiveTrainingSet, negativeTrainingSet, type);
         }
+    }
+
+    private static void printTestingResults(EvaluationResult result) {
+        System.out.println("\nTesting results:");
+        System.out.println(result.getConfusionMatrix());
+    }
+
+    private void learn(List<Document> positiveTrainingSet, List<Document> negativeTrainingSet, NaiveBayesType type) {
+        long start = Metrics.start();
+        NaiveBayesModel model = newModel(type);
 
-        Word unknownWord = new Word();
-        unknownWord.setWord(UNKNOWN_WORD);
+        for (Document document : positiveTrainingSet) {
+            model.add(vectorize(document, true), DocumentOpinion.POSITIVE);
+        }
 
-        if (type == NaiveBayesType.MULTINOMIAL) {
-            positiveMultinomialProbabilities.put(unknownWord, 1.0 / (totalPositiveWordsCount + positiveVocabularySize));
-            negativeMultinomialProbabilities.put(unknownWord, 1.0 / (totalNegativeWordsCount + negativeVocabularySize));
-        } else if (type == NaiveBayesType.BINARY) {
-            positiveBinaryProbabilities.put(unknownWord, 1.0 / (totalPositiveWordsCount + positiveVocabularySize));
-            negativeBinaryProbabilities.put(unknownWord, 1.0 / (totalNegativeWordsCount + negativeVocabularySize));
+        for (Document document : negativeTrainingSet) {
+            model.add(vectorize(document, true), DocumentOpinion.NEGATIVE);
         }
 
-        System.out.println("Learning finished.");
+        model.compile();
+        models.put(type, model);
+
+        Metrics.stop(Metrics.LEARNING, start);
+        registerGauges();
     }
 
-    public void test(List<Document> positiveTestingSet, List<Document> negativeTestingSet, NaiveBayesType type) {
-        System.out.println("Testing...");
+    /**
+     * Classifies the testing documents in parallel.
+     */
+    public EvaluationResult test(List<Document> positiveTestingSet, List<Document> negativeTestingSet,
+                                 NaiveBayesType type) {
+        NaiveBayesModel model = getModel(type);
+        EvaluationAccumulator accumulator = new EvaluationAccumulator();
+
+        positiveTestingSet.parallelStream()
+                .forEach(document -> accumulator.add(DocumentOpinion.POSITIVE, score(model, document)));
+        negativeTestingSet.parallelStream()
+                .forEach(document -> accumulator.add(DocumentOpinion.NEGATIVE, score(model, document)));
 
-        double truePositive = 0;
-        double falsePositive = 0;
-        double trueNegative = 0;
-        double falseNegative = 0;
+        return accumulator.getResult();
+    }
 
-        for (Document document : positiveTestingSet) {
-            DocumentOpinion opinion = classify(document, type);
+    /**
+     * Classifies a stream of documents labeled by their opinions in parallel,
+     * only the accumulated scores are kept.
+     */
+    public EvaluationResult test(Stream<Document> documents, NaiveBayesType type) {
+        NaiveBayesModel model = getModel(type);
+        EvaluationAccumulator accumulator = new EvaluationAccumulator();
 
-            if (opinion == DocumentOpinion.POSITIVE) {
-                ++truePositive;
-            } else {
-                ++falseNegative;
+        documents.parallel().forEach(document -> accumulator.add(document.getOpinion(), score(model, document)));
+
+        return accumulator.getResult();
+    }
+
+    private NaiveBayesModel getModel(NaiveBayesType type) {
+        if (type == null)
+            throw new IllegalArgumentException();
+
+        NaiveBayesModel model = models.get(type);
+
+        if (model == null || !model.isTrained())
+            throw new IllegalStateException("Classifier " + type + " is not trained");
+
+        return model;
+    }
+
+    Classification score(NaiveBayesModel model, Document document) {
+        long start = Metrics.start();
+        TermVector vector = vectorize(document);
+        Classification classification = score(model, vector);
+
+        countClassified(model, vector);
+        Metrics.stop(Metrics.CLASSIFICATION, start);
+
+        return classification;
+    }
+
+    private Explanation explain(NaiveBayesModel model, Document document, int k) {
+        if (k < 0)
+            throw new IllegalArgumentException("Number of terms cannot be negative: " + k);
+
+        TermVector vector = vectorize(document);
+        NaiveBayesModel patternModel = model.getPatterns();
+
+        // terms are offered by their ids and patterns by the complements of their ids
+        TopTerms positiveTerms = new TopTerms(k);
+        TopTerms negativeTerms = new TopTerms(k);
+
+        for (int termId : vector.termIds) {
+            if (termId != Vocabulary.UNKNOWN_ID)
+                offer(model.termContribution(termId), termId, positiveTerms, negativeTerms);
+        }
+
+        if (patternModel != null && vector.patterns != null) {
+            for (int patternId : vector.patterns.termIds) {
+                if (patternId != PatternIndex.UNKNOWN_ID)
+                    offer(patternModel.termContribution(patternId), ~patternId, positiveTerms, negativeTerms);
             }
         }
 
-        for (Document document : negativeTestingSet) {
-            DocumentOpinion opinion = classify(document, type);
+        return new Explanation(model.positiveLogScore(vector), model.negativeLogScore(vector),
+                toContributions(model, positiveTerms), toContributions(model, negativeTerms));
+    }
+
+    private static void offer(double contribution, int id, TopTerms positiveTerms, TopTerms negativeTerms) {
+        if (contribution > 0)
+            positiveTerms.offer(contribution, id);
+        else if (contribution < 0)
+            negativeTerms.offer(-contribution, id);
+    }
 
-            if (opinion == DocumentOpinion.NEGATIVE) {
-                ++trueNegative;
+    private List<TermContribution> toContributions(NaiveBayesModel model, TopTerms terms) {
+        List<TermContribution> contributions = new ArrayList<>(terms.size());
+
+        for (int id : terms.drainDescending()) {
+            if (id >= 0) {
+                contributions.add(new TermContribution(Collections.singletonList(vocabulary.getWord(toTermId(id))),
+                        model.termContribution(id)));
             } else {
-                ++falsePositive;
+                long key = patterns.getKey(~id);
+
+                contributions.add(new TermContribution(Arrays.asList(vocabulary.getWord(Patterns.firstId(key)),
+                        vocabulary.getWord(Patterns.secondId(key))), model.getPatterns().termContribution(~id)));
             }
         }
 
-        double accuracy = (truePositive + trueNegative) / (truePositive + trueNegative + falsePositive + falseNegative);
-        double precision = truePositive / (truePositive + falsePositive);
-        double recall = truePositive / (truePositive + falseNegative);
-        double f_measure = 2 * precision * recall / (precision + recall);
+        return contributions;
+    }
 
-        System.out.println("\nTesting results:");
-        System.out.println("Accuracy: " + accuracy);
-        System.out.println("Precision: " + precision);
-        System.out.println("Recall: " + recall);
-        System.out.println("F-measure: " + f_measure);
+    static Classification score(NaiveBayesModel model, TermVector document) {
+        return new Classification(model.positiveLogScore(document), model.negativeLogScore(document));
     }
 
-    private Map<Word, Integer> getWordsFrequencies(List<Document> documents, NaiveBayesType type) {
-        Map<Word, Integer> wordsFrequencies = new HashMap<>();
+    /**
+     * @return vocabulary of the classifier, documents created with it are classified without remapping
+     */
+    public Vocabulary getVocabulary() { return this.vocabulary; }
 
-        for (Document doc : documents) {
-            List<Word> words = doc.getWords();
+    void setVocabulary(Vocabulary vocabulary) { this.vocabulary = vocabulary; }
 
-            for (Word word : words) {
-                wordsFrequencies.putIfAbsent(word, 0);
+    // an untrained classifier takes the vocabulary of its first document, so the documents
+    // of its corpus are classified without remapping their terms
+    private void adoptVocabulary(Document document) {
+        if (models.isEmpty() && featureIds == null)
+            this.vocabulary = document.getVocabulary();
+    }
 
-                int oldFrequency = wordsFrequencies.get(word);
-                int newFrequency;
+    /**
+     * Whether models trained from now on also use the patterns of the documents as features.
+     * Documents must be parsed with pattern features for them to have any effect.
+     */
+    public void setPatternFeatures(boolean patternFeatures) { this.patternFeatures = patternFeatures; }
+
+    public boolean hasPatternFeatures() { return this.patternFeatures; }
+
+    /**
+     * Restricts the classifier to the given features, e.g. chosen by a FeatureSelector.
+     * Selected terms are numbered densely, so models trained from now on are sized by
+     * the features, and other terms are ignored instead of being scored as unknown.
+     * Patterns are kept for pairs of selected terms. Trained variants are dropped.
+     */
+    public synchronized void selectFeatures(Collection<Word> features) {
+        int[] termIds = new int[features.size()];
+        int size = 0;
+
+        for (Word word : features) {
+            termIds[size++] = vocabulary.getId(word.getWord(), word.getPOS());
+        }
 
-                if (type == NaiveBayesType.MULTINOMIAL) {
-                    newFrequency = oldFrequency + word.getFrequencyInDoc(doc);
-                } else if (type == NaiveBayesType.BINARY) {
-                    newFrequency = oldFrequency + 1;
-                } else {
-                    throw new IllegalArgumentException();
-                }
+        featureIds = new int[vocabulary.size()];
+        Arrays.fill(featureIds, Vocabulary.UNKNOWN_ID);
+        size = 0;
+
+        for (int termId : termIds) {
+            if (featureIds[termId] == Vocabulary.UNKNOWN_ID) {
+                featureIds[termId] = size;
+                termIds[size++] = termId;
+            }
+        }
+
+        selectedTermIds = Arrays.copyOf(termIds, size);
+        patterns = new PatternIndex();
+        models.clear();
+
+        registerGauges();
+    }
+
+    /**
+     * @return whether the classifier is restricted to features passed to selectFeatures
+     */
+    public boolean hasFeatureSelection() { return this.featureIds != null; }
+
+    /**
+     * @return number of selected features, or of vocabulary terms without feature selection
+     */
+    public int getFeaturesNumber() {
+        return (selectedTermIds != null) ? selectedTermIds.length : vocabulary.size();
+    }
+
+    /**
+     * @return bytes of the counts and weights of the trained variants
+     */
+    public synchronized long getModelBytes() {
+        long bytes = 0;
+
+        for (NaiveBayesModel model : models.values()) {
+            bytes += model.getBytes();
+        }
+
+        return bytes;
+    }
+
+    private static void countClassified(NaiveBayesModel model, TermVector document) {
+        if (Metrics.isEnabled()) {
+            Metrics.increment(Metrics.CLASSIFIED_DOCUMENTS);
+            Metrics.add(Metrics.UNKNOWN_TERMS, model.countUnknown(document));
+        }
+    }
+
+    private void registerGauges() {
+        Metrics.gauge(Metrics.VOCABULARY_SIZE, vocabulary::size);
+        Metrics.gauge(Metrics.MODEL_BYTES, this::getModelBytes);
+    }
+
+    NaiveBayesModel newModel(NaiveBayesType type) {
+        return new NaiveBayesModel(type, getFeaturesNumber(), patternFeatures);
+    }
+
+    /**
+     * Adds the patterns of the document to the pattern index, so that they are known to
+     * the following vectorize calls. Not safe for concurrent use.
+     */
+    void indexPatterns(Document document) {
+        if (patternFeatures)
+            vectorizePatterns(document, true);
+    }
+
+    void setModel(NaiveBayesModel model) { models.put(model.getType(), model); }
 
-                wordsFrequencies.replace(word, newFrequency);
+    /**
+     * @return terms of the document in the classifier vocabulary without stop words,
+     *         UNKNOWN_ID for terms the vocabulary does not know; feature ids without
+     *         the unselected terms after selectFeatures
+     */
+    TermVector vectorize(Document document) {
+        return vectorize(document, false);
+    }
+
+    /**
+     * @param intern whether terms missing from the classifier vocabulary are added to it
+     */
+    private TermVector vectorize(Document document, boolean intern) {
+        Vocabulary documentVocabulary = document.getVocabulary();
+        int[] termIds = document.getTermIds();
+        int[] counts = document.getCounts();
+
+        // documents parsed with the stop words filter need no lemma lookups
+        boolean filtered = document.getFilter().covers(stopWords);
+
+        TermVector patternVector = patternFeatures ? vectorizePatterns(document, intern) : null;
+
+        if (filtered && documentVocabulary == vocabulary && featureIds == null)
+            return new TermVector(termIds.clone(), counts.clone(), patternVector);
+
+        int[] resultIds = new int[termIds.length];
+        int[] resultCounts = new int[termIds.length];
+        int size = 0;
+
+        for (int i = 0; i < termIds.length; ++i) {
+            String lemma = documentVocabulary.getLemma(termIds[i]);
+
+            if (!filtered && stopWords.contains(lemma))
+                continue;
+
+            int termId;
+
+            if (documentVocabulary == vocabulary)
+                termId = termIds[i];
+            else if (intern && featureIds == null)
+                termId = vocabulary.getId(lemma, documentVocabulary.getPOS(termIds[i]));
+            else
+                termId = vocabulary.findId(lemma, documentVocabulary.getPOS(termIds[i]));
+
+            if (featureIds != null) {
+                termId = toFeatureId(termId);
+
+                // terms left out by feature selection are not features at all
+                if (termId == Vocabulary.UNKNOWN_ID)
+                    continue;
+            }
+
+            resultIds[size] = termId;
+            resultCounts[size] = counts[i];
+            ++size;
+        }
+
+        if (size < termIds.length) {
+            resultIds = Arrays.copyOf(resultIds, size);
+            resultCounts = Arrays.copyOf(resultCounts, size);
+        }
+
+        // remapped ids follow the order of the document vocabulary
+        if (documentVocabulary != vocabulary)
+            sortByTermId(resultIds, resultCounts);
+
+        return new TermVector(resultIds, resultCounts, patternVector);
+    }
+
+    /**
+     * Sorts the ids in ascending order with their counts, so documents are scored in the same
+     * order whichever vocabulary they were parsed with.
+     */
+    private static void sortByTermId(int[] ids, int[] counts) {
+        long[] pairs = new long[ids.length];
+
+        for (int i = 0; i < ids.length; ++i) {
+            pairs[i] = ((long) ids[i] << 32) | (counts[i] & 0xFFFFFFFFL);
+        }
+
+        Arrays.sort(pairs);
+
+        for (int i = 0; i < ids.length; ++i) {
+            ids[i] = (int) (pairs[i] >> 32);
+            counts[i] = (int) pairs[i];
+        }
+    }
+
+    /**
+     * @return pattern ids of the document without patterns of stop words,
+     *         UNKNOWN_ID for patterns the classifier does not know
+     */
+    private TermVector vectorizePatterns(Document document, boolean intern) {
+        Vocabulary documentVocabulary = document.getVocabulary();
+        long[] keys = document.getPatternKeys();
+        int[] counts = document.getPatternCounts();
+        boolean filtered = document.getFilter().covers(stopWords);
+
+        int[] resultIds = new int[keys.length];
+        int[] resultCounts = new int[keys.length];
+        int size = 0;
+
+        for (int i = 0; i < keys.length; ++i) {
+            int firstId = Patterns.firstId(keys[i]);
+            int secondId = Patterns.secondId(keys[i]);
+
+            if (!filtered && (stopWords.contains(documentVocabulary.getLemma(firstId))
+                    || stopWords.contains(documentVocabulary.getLemma(secondId))))
+                continue;
+
+            if (documentVocabulary != vocabulary) {
+                firstId = toClassifierId(documentVocabulary, firstId, intern && featureIds == null);
+                secondId = toClassifierId(documentVocabulary, secondId, intern && featureIds == null);
             }
+
+            int patternId;
+
+            if (toFeatureId(firstId) == Vocabulary.UNKNOWN_ID || toFeatureId(secondId) == Vocabulary.UNKNOWN_ID)
+                patternId = PatternIndex.UNKNOWN_ID;
+            else if (intern)
+                patternId = patterns.getId(Patterns.key(firstId, secondId));
+            else
+                patternId = patterns.findId(Patterns.key(firstId, secondId));
+
+            if (patternId == PatternIndex.UNKNOWN_ID && featureIds != null)
+                continue;
+
+            resultIds[size] = patternId;
+            resultCounts[size] = counts[i];
+            ++size;
         }
 
-        return wordsFrequencies;
+        resultIds = Arrays.copyOf(resultIds, size);
+        resultCounts = Arrays.copyOf(resultCounts, size);
+
+        if (documentVocabulary != vocabulary)
+            sortByTermId(resultIds, resultCounts);
+
+        return new TermVector(resultIds, resultCounts);
+    }
+
+    private int toClassifierId(Vocabulary documentVocabulary, int termId, boolean intern) {
+        String lemma = documentVocabulary.getLemma(termId);
+        POS pos = documentVocabulary.getPOS(termId);
+
+        return intern ? vocabulary.getId(lemma, pos) : vocabulary.findId(lemma, pos);
+    }
+
+    private int findPatternId(Token first, Token second) {
+        int firstId = vocabulary.findId(first.getLemma().trim().toLowerCase(), POS.fromString(first.getTag()));
+        int secondId = vocabulary.findId(second.getLemma().trim().toLowerCase(), POS.fromString(second.getTag()));
+
+        if (toFeatureId(firstId) == Vocabulary.UNKNOWN_ID || toFeatureId(secondId) == Vocabulary.UNKNOWN_ID)
+            return PatternIndex.UNKNOWN_ID;
+
+        return patterns.findId(Patterns.key(firstId, secondId));
+    }
+
+    /**
+     * @return feature id of a classifier term, UNKNOWN_ID for terms left out by feature selection
+     */
+    private int toFeatureId(int termId) {
+        if (featureIds == null || termId == Vocabulary.UNKNOWN_ID)
+            return termId;
+
+        return (termId < featureIds.length) ? featureIds[termId] : Vocabulary.UNKNOWN_ID;
+    }
+
+    private int toTermId(int featureId) {
+        return (selectedTermIds != null) ? selectedTermIds[featureId] : featureId;
     }
 
-    private int getTotalNumberOfWordsPerClass(Map<Word, Integer> wordsFrequencies) {
-        int total = 0;
+    private static int[] identity(int size) {
+        int[] ids = new int[size];
 
-        for (Word word : wordsFrequencies.keySet()) {
-            total += wordsFrequencies.get(word);
+        for (int i = 0; i < size; ++i) {
+            ids[i] = i;
         }
 
-        return total;
+        return ids;
     }
 }
@@ -0,0 +1,553 @@
+package classifiers;
+
+import corpus.DocumentOpinion;
+import util.Vocabulary;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+
+/**
+ * Class counts of one Naive Bayes variant compiled into per-term log-ratio weights.
+ *
+ * Probability of a term in a class is max(frequency, 1) / (total + vocabulary + 1),
+ * where vocabulary is the number of distinct terms seen in the class and the extra 1
+ * stands for UNKNOWN_WORD. The denominators are the same for every term of a class,
+ * so they are kept out of the weights and applied once per scored term:
+ *
+ *   log P(+|d) - log P(-|d) = log-prior ratio + sum(weight[t]) + n * (log D- - log D+)
+ *
+ * Unknown terms have weight 0 and only contribute the denominators.
+ *
+ * Since the weights only depend on the frequencies of their own term, adding or
+ * removing a document recompiles just the terms of that document and the constants.
+ *
+ * Per-term values live in buffers, so a model read from a mapped model file is
+ * scored in place. Such a model is copied to the heap on its first modification.
+ *
+ * With pattern features a nested model of the same variant counts the patterns
+ * of the documents as a second feature family over the same documents, its
+ * log-ratio is added to the one of the terms and its prior is not counted twice.
+ */
+class NaiveBayesModel {
+    private final NaiveBayesType type;
+
+    // per-class term frequencies indexed by term id
+    private IntBuffer positiveFrequencies;
+    private IntBuffer negativeFrequencies;
+
+    private long totalPositiveWords;
+    private long totalNegativeWords;
+
+    private int positiveVocabularySize;
+    private int negativeVocabularySize;
+
+    private int positiveDocsNumber;
+    private int negativeDocsNumber;
+
+    // log of the positive frequency and log-ratio weight of every term
+    private DoubleBuffer positiveLogFrequencies;
+    private DoubleBuffer weights;
+
+    private double positiveLogPrior;
+    private double negativeLogPrior;
+
+    private double positiveLogDenominator;
+    private double negativeLogDenominator;
+
+    // largest change of the log-odds one more term can cause, computed on request
+    private volatile double maxTermContribution = Double.NaN;
+
+    // counts of the pattern ids of the documents, null without pattern features
+    private NaiveBayesModel patterns;
+
+    NaiveBayesModel(NaiveBayesType type, int capacity) {
+        this(type, capacity, false);
+    }
+
+    NaiveBayesModel(NaiveBayesType type, int capacity, boolean patternFeatures) {
+        this.type = type;
+
+        if (patternFeatures)
+            this.patterns = new NaiveBayesModel(type, 0);
+
+        this.positiveFrequencies = IntBuffer.allocate(capacity);
+        this.negativeFrequencies = IntBuffer.allocate(capacity);
+        this.positiveLogFrequencies = DoubleBuffer.allocate(capacity);
+        this.weights = DoubleBuffer.allocate(capacity);
+    }
+
+    NaiveBayesType getType() { return this.type; }
+
+    boolean isTrained() { return positiveDocsNumber + negativeDocsNumber > 0; }
+
+    boolean hasPatternFeatures() { return this.patterns != null; }
+
+    NaiveBayesModel copy() {
+        NaiveBayesModel model = new NaiveBayesModel(type, 0);
+
+        model.positiveFrequencies = copyOf(positiveFrequencies, positiveFrequencies.capacity());
+        model.negativeFrequencies = copyOf(negativeFrequencies, negativeFrequencies.capacity());
+        model.positiveLogFrequencies = copyOf(positiveLogFrequencies, positiveLogFrequencies.capacity());
+        model.weights = copyOf(weights, weights.capacity());
+
+        model.totalPositiveWords = totalPositiveWords;
+        model.totalNegativeWords = totalNegativeWords;
+        model.positiveVocabularySize = positiveVocabularySize;
+        model.negativeVocabularySize = negativeVocabularySize;
+        model.positiveDocsNumber = positiveDocsNumber;
+        model.negativeDocsNumber = negativeDocsNumber;
+
+        if (patterns != null)
+            model.patterns = patterns.copy();
+
+        model.compileConstants();
+
+        return model;
+    }
+
+    /**
+     * Adds class counts of a training document, call compile before scoring.
+     */
+    void add(TermVector document, DocumentOpinion opinion) {
+        update(document, opinion, 1);
+
+        if (patterns != null)
+            patterns.add(patternsOf(document), opinion);
+    }
+
+    /**
+     * Subtracts class counts of a document previously added with the same opinion,
+     * call compile before scoring.
+     */
+    void remove(TermVector document, DocumentOpinion opinion) {
+        checkRemovable(document, opinion);
+        update(document, opinion, -1);
+
+        if (patterns != null)
+            patterns.remove(patternsOf(document), opinion);
+    }
+
+    /**
+     * Adds the document and recompiles the affected weights, the model stays ready for scoring.
+     */
+    void learn(TermVector document, DocumentOpinion opinion) {
+        update(document, opinion, 1);
+        compileTerms(document);
+
+        if (patterns != null)
+            patterns.learn(patternsOf(document), opinion);
+    }
+
+    /**
+     * Removes a document added with the same opinion and recompiles the affected weights.
+     */
+    void unlearn(TermVector document, DocumentOpinion opinion) {
+        checkRemovable(document, opinion);
+        update(document, opinion, -1);
+        compileTerms(document);
+
+        if (patterns != null)
+            patterns.unlearn(patternsOf(document), opinion);
+    }
+
+    void compile() {
+        ensureWritable();
+
+        for (int termId = 0; termId < weights.capacity(); ++termId) {
+            compileTerm(termId);
+        }
+
+        compileConstants();
+
+        if (patterns != null)
+            patterns.compile();
+    }
+
+    /**
+     * @return log P(+|d) - log P(-|d) up to the shared evidence term
+     */
+    double logOdds(TermVector document) {
+        double score = logOdds(document.termIds);
+
+        if (patterns != null)
+            score += patterns.logOdds(patternsOf(document).termIds) - patterns.getLogPriorRatio();
+
+        return score;
+    }
+
+    double positiveLogScore(TermVector document) {
+        double score = positiveLogScore(document.termIds);
+
+        if (patterns != null)
+            score += patterns.positiveLogScore(patternsOf(document).termIds) - patterns.positiveLogPrior;
+
+        return score;
+    }
+
+    double negativeLogScore(TermVector document) {
+        double score = negativeLogScore(document.termIds);
+
+        if (patterns != null)
+            score += patterns.negativeLogScore(patternsOf(document).termIds) - patterns.negativeLogPrior;
+
+        return score;
+    }
+
+    /**
+     * @return model of the pattern features, null without them
+     */
+    NaiveBayesModel getPatterns() { return this.patterns; }
+
+    /**
+     * @return bytes of the per-term counts and weights, the pattern model included
+     */
+    long getBytes() {
+        long bytes = (long) weights.capacity() * (2 * Integer.BYTES + 2 * Double.BYTES);
+
+        return (patterns != null) ? bytes + patterns.getBytes() : bytes;
+    }
+
+    double logOdds(int[] termIds) {
+        double score = positiveLogPrior - negativeLogPrior;
+        DoubleBuffer weights = this.weights;
+        int capacity = weights.capacity();
+
+        for (int termId : termIds) {
+            if (termId >= 0 && termId < capacity)
+                score += weights.get(termId);
+        }
+
+        return score + termIds.length * (negativeLogDenominator - positiveLogDenominator);
+    }
+
+    /**
+     * @return log-prior ratio, the log-odds of a document without terms
+     */
+    double getLogPriorRatio() {
+        return positiveLogPrior - negativeLogPrior;
+    }
+
+    /**
+     * @return whether the term occurred in the training documents of either class
+     */
+    boolean isKnown(int termId) {
+        return termId >= 0 && (getOrZero(positiveFrequencies, termId) > 0 || getOrZero(negativeFrequencies, termId) > 0);
+    }
+
+    /**
+     * @return number of terms of the document that are not known to the model, patterns excluded
+     */
+    int countUnknown(TermVector document) {
+        int unknown = 0;
+
+        for (int termId : document.termIds) {
+            if (!isKnown(termId))
+                ++unknown;
+        }
+
+        return unknown;
+    }
+
+    /**
+     * @return change of the log-odds caused by one more distinct term of the document
+     */
+    double termContribution(int termId) {
+        double contribution = negativeLogDenominator - positiveLogDenominator;
+
+        if (termId >= 0 && termId < weights.capacity())
+            contribution += weights.get(termId);
+
+        return contribution;
+    }
+
+    /**
+     * @return bound of the absolute termContribution over all terms, known or not
+     */
+    double getMaxTermContribution() {
+        if (Double.isNaN(maxTermContribution)) {
+            double shift = negativeLogDenominator - positiveLogDenominator;
+            double max = Math.abs(shift);
+
+            for (int termId = 0; termId < weights.capacity(); ++termId) {
+                max = Math.max(max, Math.abs(weights.get(termId) + shift));
+            }
+
+            maxTermContribution = max;
+        }
+
+        return maxTermContribution;
+    }
+
+    double positiveLogScore(int[] termIds) {
+        double score = positiveLogPrior;
+        DoubleBuffer positiveLogFrequencies = this.positiveLogFrequencies;
+        int capacity = positiveLogFrequencies.capacity();
+
+        for (int termId : termIds) {
+            if (termId >= 0 && termId < capacity)
+                score += positiveLogFrequencies.get(termId);
+        }
+
+        return score - termIds.length * positiveLogDenominator;
+    }
+
+    double negativeLogScore(int[] termIds) {
+        double score = negativeLogPrior;
+        DoubleBuffer positiveLogFrequencies = this.positiveLogFrequencies;
+        DoubleBuffer weights = this.weights;
+        int capacity = weights.capacity();
+
+        for (int termId : termIds) {
+            if (termId >= 0 && termId < capacity)
+                score += positiveLogFrequencies.get(termId) - weights.get(termId);
+        }
+
+        return score - termIds.length * negativeLogDenominator;
+    }
+
+    /**
+     * Writes the model section of a model file: counts, then the compiled per-term values
+     * of the first termsNumber term ids, both aligned to 8 bytes from the start of the file,
+     * then a flag and the section of the pattern model over patternsNumber pattern ids.
+     */
+    void write(DataOutputStream out, int termsNumber, int patternsNumber) throws IOException {
+        write(out, termsNumber);
+
+        out.writeByte((patterns != null) ? 1 : 0);
+
+        if (patterns != null)
+            patterns.write(out, patternsNumber);
+    }
+
+    private void write(DataOutputStream out, int termsNumber) throws IOException {
+        out.writeByte(type.ordinal());
+        out.writeInt(termsNumber);
+        out.writeInt(positiveDocsNumber);
+        out.writeInt(negativeDocsNumber);
+        out.writeLong(totalPositiveWords);
+        out.writeLong(totalNegativeWords);
+        out.writeInt(positiveVocabularySize);
+        out.writeInt(negativeVocabularySize);
+
+        ModelFile.align(out);
+
+        for (int termId = 0; termId < termsNumber; ++termId)
+            out.writeDouble(getOrZero(positiveLogFrequencies, termId));
+
+        for (int termId = 0; termId < termsNumber; ++termId)
+            out.writeDouble(getOrZero(weights, termId));
+
+        for (int termId = 0; termId < termsNumber; ++termId)
+            out.writeInt(getOrZero(positiveFrequencies, termId));
+
+        for (int termId = 0; termId < termsNumber; ++termId)
+            out.writeInt(getOrZero(negativeFrequencies, termId));
+
+        ModelFile.align(out);
+    }
+
+    /**
+     * Reads a model section written by write, the per-term values stay views of the buffer.
+     *
+     * @param patternsSection whether the section ends with the pattern model flag, model files
+     *                        of version 1 have no pattern models
+     */
+    static NaiveBayesModel read(ByteBuffer buffer, boolean patternsSection) {
+        NaiveBayesModel model = read(buffer);
+
+        if (patternsSection && buffer.get() != 0)
+            model.patterns = read(buffer);
+
+        return model;
+    }
+
+    private static NaiveBayesModel read(ByteBuffer buffer) {
+        NaiveBayesModel model = new NaiveBayesModel(NaiveBayesType.values()[buffer.get()], 0);
+        int termsNumber = buffer.getInt();
+
+        model.positiveDocsNumber = buffer.getInt();
+        model.negativeDocsNumber = buffer.getInt();
+        model.totalPositiveWords = buffer.getLong();
+        model.totalNegativeWords = buffer.getLong();
+        model.positiveVocabularySize = buffer.getInt();
+        model.negativeVocabularySize = buffer.getInt();
+
+        ModelFile.align(buffer);
+
+        model.positiveLogFrequencies = slice(buffer, termsNumber * Double.BYTES).asDoubleBuffer();
+        model.weights = slice(buffer, termsNumber * Double.BYTES).asDoubleBuffer();
+        model.positiveFrequencies = slice(buffer, termsNumber * Integer.BYTES).asIntBuffer();
+        model.negativeFrequencies = slice(buffer, termsNumber * Integer.BYTES).asIntBuffer();
+
+        ModelFile.align(buffer);
+
+        model.compileConstants();
+
+        return model;
+    }
+
+    void checkRemovable(TermVector document, DocumentOpinion opinion) {
+        checkTermsRemovable(document, opinion);
+
+        if (patterns != null)
+            patterns.checkTermsRemovable(patternsOf(document), opinion);
+    }
+
+    private void checkTermsRemovable(TermVector document, DocumentOpinion opinion) {
+        int docsNumber = (opinion == DocumentOpinion.POSITIVE) ? positiveDocsNumber : negativeDocsNumber;
+        IntBuffer frequencies = (opinion == DocumentOpinion.POSITIVE) ? positiveFrequencies : negativeFrequencies;
+
+        if (docsNumber == 0)
+            throw new IllegalStateException("No " + opinion + " documents to remove");
+
+        for (int i = 0; i < document.termIds.length; ++i) {
+            int termId = document.termIds[i];
+            int count = (type == NaiveBayesType.MULTINOMIAL) ? document.counts[i] : 1;
+
+            if (termId == Vocabulary.UNKNOWN_ID)
+                continue;
+
+            if (termId >= frequencies.capacity() || frequencies.get(termId) < count)
+                throw new IllegalStateException("Document was not learned as " + opinion);
+        }
+    }
+
+    private void update(TermVector document, DocumentOpinion opinion, int sign) {
+        if (opinion != DocumentOpinion.POSITIVE && opinion != DocumentOpinion.NEGATIVE)
+            throw new IllegalArgumentException("Training documents must be positive or negative: " + opinion);
+
+        ensureWritable();
+
+        if (opinion == DocumentOpinion.POSITIVE)
+            positiveDocsNumber += sign;
+        else
+            negativeDocsNumber += sign;
+
+        int[] termIds = document.termIds;
+
+        for (int i = 0; i < termIds.length; ++i) {
+            int termId = termIds[i];
+
+            if (termId == Vocabulary.UNKNOWN_ID)
+                continue;
+
+            ensureCapacity(termId + 1);
+
+            int count = sign * ((type == NaiveBayesType.MULTINOMIAL) ? document.counts[i] : 1);
+
+            if (opinion == DocumentOpinion.POSITIVE) {
+                int frequency = positiveFrequencies.get(termId);
+
+                positiveVocabularySize += vocabularyChange(frequency, count);
+                positiveFrequencies.put(termId, frequency + count);
+                totalPositiveWords += count;
+            } else {
+                int frequency = negativeFrequencies.get(termId);
+
+                negativeVocabularySize += vocabularyChange(frequency, count);
+                negativeFrequencies.put(termId, frequency + count);
+                totalNegativeWords += count;
+            }
+        }
+    }
+
+    private static int vocabularyChange(int frequency, int count) {
+        if (frequency == 0 && count > 0)
+            return 1;
+        else if (frequency > 0 && frequency + count <= 0)
+            return -1;
+        else
+            return 0;
+    }
+
+    private static TermVector patternsOf(TermVector document) {
+        return (document.patterns != null) ? document.patterns : TermVector.EMPTY;
+    }
+
+    private void compileTerms(TermVector document) {
+        for (int termId : document.termIds) {
+            if (termId != Vocabulary.UNKNOWN_ID)
+                compileTerm(termId);
+        }
+
+        compileConstants();
+    }
+
+    private void compileTerm(int termId) {
+        int positiveFrequency = positiveFrequencies.get(termId);
+        int negativeFrequency = negativeFrequencies.get(termId);
+
+        double positiveLogFrequency = (positiveFrequency > 0) ? Math.log(positiveFrequency) : 0;
+        double negativeLogFrequency = (negativeFrequency > 0) ? Math.log(negativeFrequency) : 0;
+
+        positiveLogFrequencies.put(termId, positiveLogFrequency);
+        weights.put(termId, positiveLogFrequency - negativeLogFrequency);
+    }
+
+    private void compileConstants() {
+        double totalNumberOfDocuments = positiveDocsNumber + negativeDocsNumber;
+
+        positiveLogPrior = Math.log(positiveDocsNumber / totalNumberOfDocuments);
+        negativeLogPrior = Math.log(negativeDocsNumber / totalNumberOfDocuments);
+
+        // 1 is for UNKNOWN_WORD
+        positiveLogDenominator = Math.log(totalPositiveWords + positiveVocabularySize + 1);
+        negativeLogDenominator = Math.log(totalNegativeWords + negativeVocabularySize + 1);
+
+        maxTermContribution = Double.NaN;
+    }
+
+    private void ensureWritable() {
+        if (weights.isReadOnly())
+            resize(weights.capacity());
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > weights.capacity())
+            resize(Math.max(capacity, 2 * weights.capacity()));
+    }
+
+    private void resize(int capacity) {
+        positiveFrequencies = copyOf(positiveFrequencies, capacity);
+        negativeFrequencies = copyOf(negativeFrequencies, capacity);
+        positiveLogFrequencies = copyOf(positiveLogFrequencies, capacity);
+        weights = copyOf(weights, capacity);
+    }
+
+    private static IntBuffer copyOf(IntBuffer buffer, int capacity) {
+        int[] values = new int[capacity];
+        IntBuffer source = buffer.duplicate();
+        source.clear();
+        source.get(values, 0, Math.min(capacity, source.capacity()));
+
+        return IntBuffer.wrap(values);
+    }
+
+    private static DoubleBuffer copyOf(DoubleBuffer buffer, int capacity) {
+        double[] values = new double[capacity];
+        DoubleBuffer source = buffer.duplicate();
+        source.clear();
+        source.get(values, 0, Math.min(capacity, source.capacity()));
+
+        return DoubleBuffer.wrap(values);
+    }
+
+    private static int getOrZero(IntBuffer buffer, int index) {
+        return (index < buffer.capacity()) ? buffer.get(index) : 0;
+    }
+
+    private static double getOrZero(DoubleBuffer buffer, int index) {
+        return (index < buffer.capacity()) ? buffer.get(index) : 0;
+    }
+
+    private static ByteBuffer slice(ByteBuffer buffer, int length) {
+        ByteBuffer slice = buffer.slice();
+        slice.limit(length);
+        buffer.position(buffer.position() + length);
+
+        return slice;
+    }
+}
@@ -0,0 +1,54 @@
+package classifiers;
+
+import util.LongIntMap;
+
+import java.util.Arrays;
+
+/**
+ * Dense ids of the patterns known to a classifier. Patterns are Patterns.key
+ * values of term ids in the classifier vocabulary, ids are assigned in order
+ * of first appearance. Reads are safe while nothing is added.
+ */
+class PatternIndex {
+    static final int UNKNOWN_ID = -1;
+
+    private final LongIntMap ids;
+    private long[] keys;
+
+    PatternIndex() {
+        this.ids = new LongIntMap();
+        this.keys = new long[16];
+    }
+
+    /**
+     * @return id of the pattern, adding it to the index if necessary
+     */
+    int getId(long key) {
+        int id = ids.get(key, UNKNOWN_ID);
+
+        if (id != UNKNOWN_ID)
+            return id;
+
+        id = ids.size();
+
+        if (id == keys.length)
+            keys = Arrays.copyOf(keys, 2 * id);
+
+        keys[id] = key;
+        ids.put(key, id);
+
+        return id;
+    }
+
+    int findId(long key) {
+        return ids.get(key, UNKNOWN_ID);
+    }
+
+    long getKey(int id) {
+        return keys[id];
+    }
+
+    int size() {
+        return ids.size();
+    }
+}
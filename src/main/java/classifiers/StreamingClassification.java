@@ -0,0 +1,50 @@
+package classifiers;
+
+import java.util.Formatter;
+import java.util.Locale;
+
+/**
+ * Classification of a text annotated sentence by sentence, possibly stopped
+ * before its end once the decision was clear.
+ */
+public class StreamingClassification extends Classification {
+    private final int processedChars;
+    private final int totalChars;
+    private final int processedSentences;
+
+    public StreamingClassification(double positiveScore, double negativeScore,
+                                   int processedChars, int totalChars, int processedSentences) {
+        super(positiveScore, negativeScore);
+
+        this.processedChars = processedChars;
+        this.totalChars = totalChars;
+        this.processedSentences = processedSentences;
+    }
+
+    /**
+     * @return length of the text prefix which was annotated and scored
+     */
+    public int getProcessedChars() { return this.processedChars; }
+
+    public int getTotalChars() { return this.totalChars; }
+
+    public int getProcessedSentences() { return this.processedSentences; }
+
+    public double getProcessedFraction() {
+        return (totalChars > 0) ? (double) processedChars / totalChars : 1.0;
+    }
+
+    /**
+     * @return true if the text was not read to the end
+     */
+    public boolean isEarlyExit() { return this.processedChars < this.totalChars; }
+
+    public String toString() {
+        StringBuilder text = new StringBuilder(super.toString());
+        Formatter format = new Formatter(text, Locale.US);
+
+        format.format("\t%1$d / %2$d chars, %3$d sentences", processedChars, totalChars, processedSentences);
+
+        return format.toString();
+    }
+}
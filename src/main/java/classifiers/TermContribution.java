@@ -0,0 +1,46 @@
+package classifiers;
+
+import util.Word;
+
+import java.util.*;
+
+/**
+ * Change of the log-odds of a document caused by one of its terms or patterns,
+ * positive values argue for the positive class.
+ */
+public class TermContribution {
+    // one word for a term, two for a pattern
+    private final List<Word> words;
+    private final double contribution;
+
+    TermContribution(List<Word> words, double contribution) {
+        this.words = Collections.unmodifiableList(words);
+        this.contribution = contribution;
+    }
+
+    public List<Word> getWords() { return this.words; }
+
+    public boolean isPattern() { return this.words.size() > 1; }
+
+    public double getContribution() { return this.contribution; }
+
+    /**
+     * @return lemmas separated by spaces
+     */
+    public String getTerm() {
+        StringBuilder term = new StringBuilder();
+
+        for (Word word : words) {
+            if (term.length() > 0)
+                term.append(' ');
+
+            term.append(word.getWord());
+        }
+
+        return term.toString();
+    }
+
+    public String toString() {
+        return String.format(Locale.US, "%1$-30s\t%2$+.4f", getTerm(), contribution);
+    }
+}
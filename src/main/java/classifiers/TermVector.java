@@ -0,0 +1,25 @@
+package classifiers;
+
+/**
+ * Term ids of a document in the classifier vocabulary with their frequencies,
+ * stop words excluded, and the ids of its patterns if pattern features are used.
+ */
+class TermVector {
+    static final TermVector EMPTY = new TermVector(new int[0], new int[0]);
+
+    final int[] termIds;
+    final int[] counts;
+
+    // pattern ids in the pattern index of the classifier, null without pattern features
+    final TermVector patterns;
+
+    TermVector(int[] termIds, int[] counts) {
+        this(termIds, counts, null);
+    }
+
+    TermVector(int[] termIds, int[] counts, TermVector patterns) {
+        this.termIds = termIds;
+        this.counts = counts;
+        this.patterns = patterns;
+    }
+}
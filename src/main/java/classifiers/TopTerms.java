@@ -0,0 +1,92 @@
+package classifiers;
+
+/**
+ * The k ids with the largest values out of a stream of (value, id) pairs: a
+ * binary min-heap on primitive arrays, so offering n pairs takes O(n log k)
+ * and allocates nothing. Of equal values the lower id ranks higher, so the
+ * result does not depend on the offering order.
+ */
+class TopTerms {
+    private final double[] values;
+    private final int[] ids;
+    private int size;
+
+    TopTerms(int k) {
+        this.values = new double[k];
+        this.ids = new int[k];
+    }
+
+    void offer(double value, int id) {
+        if (size < values.length) {
+            int child = size++;
+
+            // sift up
+            while (child > 0) {
+                int parent = (child - 1) / 2;
+
+                if (ranksBelow(values[parent], ids[parent], value, id))
+                    break;
+
+                values[child] = values[parent];
+                ids[child] = ids[parent];
+                child = parent;
+            }
+
+            values[child] = value;
+            ids[child] = id;
+        } else if (size > 0 && ranksBelow(values[0], ids[0], value, id)) {
+            siftDown(value, id);
+        }
+    }
+
+    int size() { return this.size; }
+
+    /**
+     * Empties the heap.
+     *
+     * @return ids in descending order of their values
+     */
+    int[] drainDescending() {
+        int[] result = new int[size];
+
+        while (size > 0) {
+            result[size - 1] = ids[0];
+
+            --size;
+
+            if (size > 0)
+                siftDown(values[size], ids[size]);
+        }
+
+        return result;
+    }
+
+    // replaces the root with the pair and restores the heap order
+    private void siftDown(double value, int id) {
+        int parent = 0;
+
+        while (true) {
+            int child = 2 * parent + 1;
+
+            if (child >= size)
+                break;
+
+            if (child + 1 < size && ranksBelow(values[child + 1], ids[child + 1], values[child], ids[child]))
+                ++child;
+
+            if (ranksBelow(value, id, values[child], ids[child]))
+                break;
+
+            values[parent] = values[child];
+            ids[parent] = ids[child];
+            parent = child;
+        }
+
+        values[parent] = value;
+        ids[parent] = id;
+    }
+
+    private static boolean ranksBelow(double value, int id, double otherValue, int otherId) {
+        return value < otherValue || (value == otherValue && id > otherId);
+    }
+}
@@ -0,0 +1,219 @@
+package corpus;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Persistent cache of annotated token streams, one binary file per document
+ * named by the SHA-1 of the annotator name and the document text. When the directory grows over
+ * the size limit the least recently used entries are deleted.
+ */
+public class AnnotationCache {
+    private static final int MAGIC = 0x414E4E43; // "ANNC"
+    private static final byte VERSION = 1;
+
+    private static final String EXTENSION = ".ann";
+    private static final String TEMP_EXTENSION = ".tmp";
+
+    private final File directory;
+    private final long maxBytes;
+
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+    private final AtomicLong evictions;
+
+    private long currentBytes;
+
+    public AnnotationCache(String directoryAddress, long maxBytes) {
+        this.directory = new File(directoryAddress);
+        this.maxBytes = maxBytes;
+
+        this.hits = new AtomicLong();
+        this.misses = new AtomicLong();
+        this.evictions = new AtomicLong();
+
+        if (!directory.isDirectory() && !directory.mkdirs())
+            throw new IllegalArgumentException("Cannot create annotation cache directory " + directoryAddress);
+
+        // temporary files of writes interrupted by a crash are never moved into place
+        File[] orphans = directory.listFiles((dir, name) -> name.endsWith(TEMP_EXTENSION));
+
+        if (orphans != null) {
+            for (File orphan : orphans) {
+                orphan.delete();
+            }
+        }
+
+        for (File file : listEntries()) {
+            currentBytes += file.length();
+        }
+    }
+
+    /**
+     * @return sentences of the cached annotation or null if the annotator did not annotate the text before
+     */
+    public List<List<Token>> get(String annotator, String text) {
+        File file = entryFile(annotator, text);
+
+        if (!file.isFile()) {
+            misses.incrementAndGet();
+            return null;
+        }
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            List<List<Token>> sentences = readEntry(in);
+
+            // modification time serves as the access time for LRU eviction
+            file.setLastModified(System.currentTimeMillis());
+            hits.incrementAndGet();
+
+            return sentences;
+        } catch (IOException e) {
+            // unreadable or foreign entry, annotate the text again and overwrite it
+            misses.incrementAndGet();
+            return null;
+        }
+    }
+
+    /**
+     * Writes the entry into a temporary file outside of the lock, the replacement of the
+     * entry and the size accounting happen under it.
+     */
+    public void put(String annotator, String text, List<List<Token>> sentences) {
+        File file = entryFile(annotator, text);
+        File temp = null;
+
+        try {
+            temp = File.createTempFile("entry", TEMP_EXTENSION, directory);
+
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+                writeEntry(out, sentences);
+            }
+
+            synchronized (this) {
+                long oldLength = file.length();
+                Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+                temp = null;
+
+                currentBytes += file.length() - oldLength;
+
+                if (currentBytes > maxBytes)
+                    evict();
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        } finally {
+            if (temp != null)
+                temp.delete();
+        }
+    }
+
+    public long getHits() { return this.hits.get(); }
+
+    public long getMisses() { return this.misses.get(); }
+
+    public long getEvictions() { return this.evictions.get(); }
+
+    public synchronized long getSize() { return this.currentBytes; }
+
+    public long getMaxSize() { return this.maxBytes; }
+
+    public String toString() {
+        return String.format(Locale.US, "Annotation cache: %d hits, %d misses, %d evictions, %d / %d bytes",
+                getHits(), getMisses(), getEvictions(), getSize(), maxBytes);
+    }
+
+    private void evict() {
+        List<File> entries = listEntries();
+        entries.sort(Comparator.comparingLong(File::lastModified));
+
+        // evict down to 90% of the limit so every put over the limit does not rescan the directory
+        long target = maxBytes - maxBytes / 10;
+
+        for (File entry : entries) {
+            if (currentBytes <= target)
+                break;
+
+            long length = entry.length();
+
+            if (entry.delete()) {
+                currentBytes -= length;
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    private List<File> listEntries() {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(EXTENSION));
+
+        return (files == null) ? new ArrayList<>() : new ArrayList<>(Arrays.asList(files));
+    }
+
+    private File entryFile(String annotator, String text) {
+        return new File(directory, sha1(annotator + '\u0000' + text) + EXTENSION);
+    }
+
+    /**
+     * @return hex SHA-1 of the UTF-8 text
+     */
+    static String sha1(String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            byte[] bytes = digest.digest(text.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder(bytes.length * 2);
+
+            for (byte b : bytes) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16));
+                hex.append(Character.forDigit(b & 0xF, 16));
+            }
+
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void writeEntry(DataOutputStream out, List<List<Token>> sentences) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        out.writeInt(sentences.size());
+
+        for (List<Token> sentence : sentences) {
+            out.writeInt(sentence.size());
+
+            for (Token token : sentence) {
+                out.writeUTF(token.getWord());
+                out.writeUTF(token.getLemma());
+                out.writeUTF(token.getTag());
+            }
+        }
+    }
+
+    private static List<List<Token>> readEntry(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC || in.readByte() != VERSION)
+            throw new IOException("Unsupported annotation cache entry");
+
+        int sentencesNumber = in.readInt();
+        List<List<Token>> sentences = new ArrayList<>(sentencesNumber);
+
+        for (int i = 0; i < sentencesNumber; ++i) {
+            int tokensNumber = in.readInt();
+            List<Token> sentence = new ArrayList<>(tokensNumber);
+
+            for (int j = 0; j < tokensNumber; ++j) {
+                sentence.add(new Token(in.readUTF(), in.readUTF(), in.readUTF()));
+            }
+
+            sentences.add(sentence);
+        }
+
+        return sentences;
+    }
+}
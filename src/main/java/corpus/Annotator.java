@@ -0,0 +1,18 @@
+package corpus;
+
+import java.util.List;
+
+/**
+ * Splits a text into sentences of tokens with lemmas and Penn Treebank POS
+ * tags. Implementations are shared by all documents of a corpus and must be
+ * safe for concurrent use.
+ */
+public interface Annotator {
+    List<List<Token>> annotate(String text);
+
+    /**
+     * @return name of the annotator and its configuration, annotations cached under one name
+     * are never returned for another
+     */
+    String getName();
+}
@@ -0,0 +1,75 @@
+package corpus;
+
+import edu.stanford.nlp.ling.CoreAnnotations;
+import edu.stanford.nlp.ling.CoreLabel;
+import edu.stanford.nlp.pipeline.Annotation;
+import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+import edu.stanford.nlp.util.CoreMap;
+
+import java.util.*;
+
+/**
+ * Annotator running the Stanford CoreNLP tokenize, ssplit, pos and lemma annotators.
+ * The name includes a digest of the pipeline properties, so pipelines of different
+ * annotators or options never share cached annotations.
+ */
+public class CoreNLPAnnotator implements Annotator {
+    public static final String NAME = "corenlp";
+
+    private final StanfordCoreNLP pipeline;
+
+    private final String name;
+
+    /**
+     * Uses the shared default pipeline of PipelineProvider.
+     */
+    public CoreNLPAnnotator() {
+        this(PipelineProvider.getDefault());
+    }
+
+    public CoreNLPAnnotator(StanfordCoreNLP pipeline) {
+        this.pipeline = pipeline;
+        this.name = NAME + "-" + AnnotationCache.sha1(configuration(pipeline.getProperties()));
+    }
+
+    @Override
+    public List<List<Token>> annotate(String text) {
+        Annotation document = new Annotation(text);
+        this.pipeline.annotate(document);
+
+        List<CoreMap> sentences = document.get(CoreAnnotations.SentencesAnnotation.class);
+        List<List<Token>> result = new ArrayList<>(sentences.size());
+
+        for (CoreMap sentence : sentences) {
+            List<CoreLabel> labels = sentence.get(CoreAnnotations.TokensAnnotation.class);
+            List<Token> tokens = new ArrayList<>(labels.size());
+
+            for (CoreLabel label : labels) {
+                tokens.add(new Token(label));
+            }
+
+            result.add(tokens);
+        }
+
+        return result;
+    }
+
+    @Override
+    public String getName() { return this.name; }
+
+    public StanfordCoreNLP getPipeline() { return this.pipeline; }
+
+    // sorted "key=value" lines of the properties, defaults included
+    private static String configuration(Properties properties) {
+        List<String> keys = new ArrayList<>(properties.stringPropertyNames());
+        Collections.sort(keys);
+
+        StringBuilder configuration = new StringBuilder();
+
+        for (String key : keys) {
+            configuration.append(key).append('=').append(properties.getProperty(key)).append('\n');
+        }
+
+        return configuration.toString();
+    }
+}
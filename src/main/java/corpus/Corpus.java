@@ -1,68 +1,116 @@
 package corpus;
 
-import edu.stanford.nlp.ling.CoreAnnotations;
-import edu.stanford.nlp.ling.CoreLabel;
-import edu.stanford.nlp.pipeline.Annotation;
-import edu.stanford.nlp.pipeline.StanfordCoreNLP;
-import edu.stanford.nlp.util.CoreMap;
+import util.Metrics;
 import util.POS;
 import util.Pair;
-import util.Utils;
+import util.Vocabulary;
 import util.Word;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * Created by artem on 28.02.16.
  */
 public class Corpus {
+    // documents read ahead of the annotated ones per worker while loading in parallel
+    private static final int DOCUMENTS_IN_FLIGHT_PER_THREAD = 4;
 
-    private StanfordCoreNLP pipeline;
+    private Annotator annotator;
+
+    private Vocabulary vocabulary;
 
     private List<Word> words;
-    private Map<Word, Word> uniqueWords;
 
     private List<Document> positiveDocuments;
     private List<Document> negativeDocuments;
 
-    private Set<String> specialWords;
+    private InvertedIndex index;
+
+    // special words removed from the documents or skipped while parsing them
+    private SpecialWordFilter filter;
+
+    private int threads;
+
+    private boolean patternFeatures;
+
+    private AnnotationCache annotationCache;
 
     public Corpus() {
-        Properties props = new Properties();
-        //props.setProperty("annotators", "tokenize, ssplit, pos, lemma, parse");
-        props.setProperty("annotators", "tokenize, ssplit, pos, lemma");
-        this.pipeline = new StanfordCoreNLP(props);
-        words = new ArrayList<>();
+        this(1);
     }
 
-    public List<Pair<Word, Word>> extractPatterns(String text) {
-        Annotation document = new Annotation(text);
-        List<Pair<Word, Word>> patterns = new ArrayList<>();
-        Word word1, word2;
+    /**
+     * @param threads number of workers annotating documents while loading a corpus,
+     *                1 keeps the sequential path
+     */
+    public Corpus(int threads) {
+        annotator = new CoreNLPAnnotator();
+        vocabulary = new Vocabulary();
+        filter = SpecialWordFilter.none();
+        words = Collections.emptyList();
+
+        setThreads(threads);
+    }
+
+    public void setThreads(int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("Number of threads must be positive: " + threads);
+
+        this.threads = threads;
+    }
+
+    public int getThreads() { return this.threads; }
+
+    /**
+     * Documents of the following loadCorpus calls are annotated by the given annotator, CoreNLP by default.
+     */
+    public void setAnnotator(Annotator annotator) { this.annotator = annotator; }
+
+    public Annotator getAnnotator() { return this.annotator; }
+
+    /**
+     * Whether documents of the following loadCorpus calls collect pattern features, see Patterns.
+     */
+    public void setPatternFeatures(boolean patternFeatures) { this.patternFeatures = patternFeatures; }
+
+    public boolean hasPatternFeatures() { return this.patternFeatures; }
+
+    public void setVocabulary(Vocabulary vocabulary) { this.vocabulary = vocabulary; }
+
+    public Vocabulary getVocabulary() { return this.vocabulary; }
+
+    /**
+     * Lemmas matched by the filter are skipped while the following loadCorpus calls parse the documents.
+     */
+    public void setFilter(SpecialWordFilter filter) { this.filter = filter; }
+
+    public SpecialWordFilter getFilter() { return this.filter; }
 
-        this.pipeline.annotate(document);
+    public void setAnnotationCache(AnnotationCache annotationCache) { this.annotationCache = annotationCache; }
 
-        List<CoreMap> sentences = document.get(CoreAnnotations.SentencesAnnotation.class);
-        List<CoreLabel> tokens;
-        CoreLabel token1, token2;
+    public AnnotationCache getAnnotationCache() { return this.annotationCache; }
 
-        for(CoreMap sentence: sentences) {
-            tokens = sentence.get(CoreAnnotations.TokensAnnotation.class);
+    public List<Pair<Word, Word>> extractPatterns(String text) {
+        List<Pair<Word, Word>> patterns = new ArrayList<>();
+
+        for (List<Token> tokens : annotator.annotate(text)) {
             for (int i = 0; i < tokens.size() - 1; ++i) {
-                token1 = tokens.get(i);
-                token2 = tokens.get(i + 1);
+                Token token1 = tokens.get(i);
+                Token token2 = tokens.get(i + 1);
 
-                if (!matchesPattern(token1, token2))
+                if (!Patterns.matches(token1.getTag(), token2.getTag()))
                     continue;
 
-                word1 = new Word(token1);
-                word2 = new Word(token2);
-
-                patterns.add(new Pair<>(word1, word2));
+                patterns.add(new Pair<>(new Word(token1), new Word(token2)));
             }
         }
 
@@ -72,14 +120,25 @@ public class Corpus {
     public void loadCorpus(String positiveFileAddress, String negativeFileAddress) {
         File posFile = new File(positiveFileAddress);
         File negFile = new File(negativeFileAddress);
+        long start = Metrics.start();
 
         positiveDocuments = new ArrayList<>();
         negativeDocuments = new ArrayList<>();
 
-        positiveDocuments.addAll(loadDocuments(posFile, DocumentOpinion.POSITIVE));
-        negativeDocuments.addAll(loadDocuments(negFile, DocumentOpinion.NEGATIVE));
+        ExecutorService executor = (threads > 1) ? Executors.newFixedThreadPool(threads) : null;
+
+        try {
+            positiveDocuments.addAll(loadDocuments(posFile, DocumentOpinion.POSITIVE, executor));
+            negativeDocuments.addAll(loadDocuments(negFile, DocumentOpinion.NEGATIVE, executor));
+        } finally {
+            if (executor != null)
+                executor.shutdown();
+        }
 
+        index = buildIndex();
         words = extractWords();
+
+        Metrics.stop(Metrics.CORPUS_LOADING, start);
     }
 
     public List<Word> getWords(POS... wordsPOS) {
@@ -116,38 +175,40 @@ public class Corpus {
         return this.negativeDocuments;
     }
 
+    public InvertedIndex getIndex() { return this.index; }
+
+    public List<Document> getDocumentsContaining(Word word) {
+        return index.getDocumentsContaining(vocabulary.findId(word));
+    }
+
+    public int getDocumentFrequency(Word word) {
+        return index.getDocumentFrequency(vocabulary.findId(word));
+    }
+
+    public int getFrequencyInDoc(Word word, Document document) {
+        return index.getFrequencyInDoc(vocabulary.findId(word), document.getId());
+    }
+
     public int getPositiveDocsNumber() { return this.positiveDocuments.size(); }
 
     public int getNegativeDocsNumber() { return this.negativeDocuments.size(); }
 
     public void removeSpecialWords(SpecialWordType... specialWordsType) {
-        specialWords = new HashSet<>();
+        SpecialWordFilter specialWords = SpecialWordFilter.get(specialWordsType);
 
-        if (specialWordsType.length == 0) {
-            specialWords.addAll(loadAdditionalFile(Utils.stopWordsFileAddress));
-            specialWords.addAll(loadAdditionalFile(Utils.kernelFileAddress));
-            specialWords.addAll(loadAdditionalFile(Utils.peripheryFileAddress));
-        } else {
-            for (SpecialWordType type : specialWordsType) {
-                if (type.equals(SpecialWordType.STOP_WORD))
-                    specialWords.addAll(loadAdditionalFile(Utils.stopWordsFileAddress));
-                else if (type.equals(SpecialWordType.KERNEL_WORD))
-                    specialWords.addAll(loadAdditionalFile(Utils.kernelFileAddress));
-                else if (type.equals(SpecialWordType.PERIPHERY_WORD))
-                    specialWords.addAll(loadAdditionalFile(Utils.peripheryFileAddress));
-            }
-        }
+        // repeated calls, e.g. from every learn, do not touch the documents again
+        if (filter.covers(specialWords))
+            return;
 
+        long start = Metrics.start();
         List<Word> result = new ArrayList<>();
 
         for (Document document : positiveDocuments) {
-            document.setSpecialWords(specialWords);
-            document.removeSpecialWords(specialWordsType);
+            document.removeSpecialWords(specialWords);
         }
 
         for (Document document : negativeDocuments) {
-            document.setSpecialWords(specialWords);
-            document.removeSpecialWords(specialWordsType);
+            document.removeSpecialWords(specialWords);
         }
 
         /* easier to remove special words here than recollecting all words from documents
@@ -159,154 +220,199 @@ public class Corpus {
             }
         }
 
-        words.clear();
-        words = result;
+        words = Collections.unmodifiableList(result);
+
+        filter = filter.union(specialWords);
+        index = buildIndex();
+
+        Metrics.stop(Metrics.SPECIAL_WORDS_REMOVAL, start);
     }
 
     public void removeInsignificantWords(int threshold) {
         List<Word> result = new ArrayList<>();
-        Double averageFrequency = 0.0;
 
         for (Word word : words) {
-            averageFrequency += word.getTotalFrequency();
+            if (word.getTotalFrequency() > threshold)
+                result.add(word);
         }
 
-        averageFrequency /= words.size();
+        words = Collections.unmodifiableList(result);
+    }
 
-        for (Word word : words) {
-            if (word.getTotalFrequency() > threshold)
-                result.add(word);
+    public Set<String> getSpecialWords() { return this.filter.getWords(); }
+
+    private InvertedIndex buildIndex() {
+        long start = Metrics.start();
+        List<Document> documents = getDocuments();
+
+        for (int i = 0; i < documents.size(); ++i) {
+            documents.get(i).setId(i);
         }
 
-        words.clear();
-        words = result;
+        InvertedIndex newIndex = new InvertedIndex(documents, vocabulary.size());
+        Metrics.stop(Metrics.INDEXING, start);
+
+        return newIndex;
     }
 
-    public Set<String> getSpecialWords() { return this.specialWords; }
-
-    private boolean matchesPattern(CoreLabel token1, CoreLabel token2) {
-        String pos1, pos2;
-
-        pos1 = token1.get(CoreAnnotations.PartOfSpeechAnnotation.class);
-        pos2 = token2.get(CoreAnnotations.PartOfSpeechAnnotation.class);
-
-        if (pos1.equals("JJ") && (pos2.equals("NN") || pos2.equals("NNS")))
-            return true;
-        else if ((pos1.equals("RB") || pos1.equals("RBR") || pos1.equals("RBS")) && pos2.equals("JJ"))
-            return true;
-        else if (pos1.equals("JJ") && pos2.equals("JJ"))
-            return true;
-        else if ((pos1.equals("NN") || pos1.equals("NNS")) && pos2.equals("JJ"))
-            return true;
-        else if ((pos1.equals("RB") || pos1.equals("RBR") || pos1.equals("RBS")) &&
-                (pos2.equals("VB") || pos2.equals("VBD") || pos2.equals("VBN") || pos2.equals("VBG")))
-            return true;
-        else
-            return false;
+    /**
+     * Counts the words of all documents from the per-opinion totals of the index.
+     * The words returned by getWords are not replaced.
+     *
+     * @return unmodifiable list of new Words sorted by lemma
+     */
+    public List<Word> extractWords() {
+        return extractWords(getDocuments());
     }
 
-    private Set<String> loadAdditionalFile(String fileAddress) {
-        Set<String> words = new HashSet<>();
+    /**
+     * Counts the words of the given documents of this corpus, e.g. of a training fold,
+     * by walking the index postings of every term, terms are counted in parallel.
+     *
+     * @return unmodifiable list of new Words sorted by lemma
+     * @throws IllegalArgumentException if a document is not indexed in this corpus
+     */
+    public List<Word> extractWords(Collection<Document> documentsToCount) {
+        long start = Metrics.start();
+        BitSet selected = new BitSet(index.getDocumentsNumber());
 
-        try {
-            File file = new File(fileAddress);
-            InputStream in = new FileInputStream(file);
-            Scanner scan = new Scanner(in);
+        for (Document document : documentsToCount) {
+            int docId = document.getId();
 
-            while (scan.hasNextLine()) {
-                words.add(scan.nextLine());
-            }
-        } catch (IOException e) {
-            e.printStackTrace();
+            if (docId < 0 || docId >= index.getDocumentsNumber() || index.getDocument(docId) != document)
+                throw new IllegalArgumentException("Document is not indexed in the corpus: " + docId);
+
+            selected.set(docId);
         }
 
-        return words;
-    }
+        // the totals kept by the index already cover all documents
+        BitSet docIds = (selected.cardinality() == index.getDocumentsNumber()) ? null : selected;
+        IntStream termIds = IntStream.range(0, vocabulary.size());
 
-    private List<Word> extractWords() {
-        List<Word> words;
-        uniqueWords = new HashMap<>();
+        if (threads > 1)
+            termIds = termIds.parallel();
 
-        positiveDocuments.forEach(this::extractWordsFromDoc);
-        negativeDocuments.forEach(this::extractWordsFromDoc);
+        List<Word> words = termIds.mapToObj(termId -> countWord(termId, docIds))
+                .filter(Objects::nonNull)
+                .sorted()
+                .collect(Collectors.toList());
 
-        words = new ArrayList<>(uniqueWords.values());
-        Collections.sort(words);
-        words = removeDuplicates(words);
+        Metrics.stop(Metrics.WORDS_EXTRACTION, start);
 
-        return words;
+        return Collections.unmodifiableList(words);
     }
 
-    private List<Word> removeDuplicates(List<Word> words) {
-        Word word1, word2;
-        List<Word> cleanedList = new ArrayList<>();
+    /**
+     * @param docIds documents to count the term in, all when null
+     * @return new Word with the term counts or null if the documents do not contain it
+     */
+    private Word countWord(int termId, BitSet docIds) {
+        int opinionsNumber = DocumentOpinion.values().length;
+        int[] docsNumbers = new int[opinionsNumber];
+        long[] frequencies = new long[opinionsNumber];
+
+        if (docIds == null) {
+            for (DocumentOpinion opinion : DocumentOpinion.values()) {
+                docsNumbers[opinion.ordinal()] = index.getDocsNumber(termId, opinion);
+                frequencies[opinion.ordinal()] = index.getFrequency(termId, opinion);
+            }
+        } else {
+            index.countInDocuments(termId, docIds, docsNumbers, frequencies);
+        }
+
+        Word word = null;
 
-        for (int i = 0; i < words.size(); ++i) {
-            word1 = words.get(i);
+        for (DocumentOpinion opinion : DocumentOpinion.values()) {
+            int docsNumber = docsNumbers[opinion.ordinal()];
 
-            for (int j = i + 1; j < words.size(); ++j) {
-                word2 = words.get(j);
+            if (docsNumber == 0)
+                continue;
 
-                if (word1.canMerge(word2)) {
-                    word1.merge(word2);
-                } else {
-                    i = j - 1;
-                    break;
-                }
-            }
+            if (word == null)
+                word = vocabulary.getWord(termId);
 
-            cleanedList.add(word1);
+            word.addOccurrences(opinion, Math.toIntExact(frequencies[opinion.ordinal()]), docsNumber);
         }
 
-        return cleanedList;
+        return word;
     }
 
-    private void extractWordsFromDoc(Document document) {
-        for (Word word : document.getWords()) {
-            if (uniqueWords.containsKey(word)) {
-                Word temp = uniqueWords.get(word);
+    /**
+     * @throws UncheckedIOException if the file cannot be read
+     * @throws IllegalStateException if a document cannot be annotated or loading is interrupted,
+     *                               the documents still pending are cancelled
+     */
+    private List<Document> loadDocuments(File file, DocumentOpinion opinion, ExecutorService executor) {
+        Deque<Future<Document>> futures = new ArrayDeque<>();
 
-                if (temp.canMerge(word))
-                    temp.merge(word);
+        try (CorpusReader reader = new CorpusReader(file)) {
+            List<Document> documents = new ArrayList<>();
+            long start = System.nanoTime();
 
-                uniqueWords.put(word, temp);
+            if (executor == null) {
+                while (reader.hasNext()) {
+                    documents.add(createDocument(reader.next(), opinion));
+                }
             } else {
-                uniqueWords.put(word, word);
-            }
+                int inFlight = DOCUMENTS_IN_FLIGHT_PER_THREAD * threads;
+
+                /* documents are submitted as soon as they are read, so annotation overlaps with reading,
+                   but reading waits for the oldest one once inFlight texts are pending. Futures are
+                   collected in submission order, so the documents keep the file order
+                 */
+                while (reader.hasNext()) {
+                    if (futures.size() == inFlight)
+                        documents.add(futures.poll().get());
+
+                    String dText = reader.next();
+                    futures.add(executor.submit(() -> createDocument(dText, opinion)));
+                }
 
-        }
-    }
+                while (!futures.isEmpty()) {
+                    documents.add(futures.poll().get());
+                }
+            }
 
-    private List<Document> loadDocuments(File file, DocumentOpinion opinion) {
-        try {
-            List<Document> documents = new ArrayList<>();
-            InputStream in = new FileInputStream(file);
-            Scanner scan = new Scanner(in);
-            StringBuilder text = new StringBuilder();
+            reportThroughput(file, documents.size(), System.nanoTime() - start);
 
-            while (scan.hasNextLine()) {
-                text.append(scan.nextLine());
-                text.append("\n");
+            return documents;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read corpus " + file, e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Cannot load a document of corpus " + file, e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while loading corpus " + file, e);
+        } finally {
+            // left only by a failure, a corpus is never returned incomplete
+            for (Future<Document> future : futures) {
+                future.cancel(true);
             }
+        }
+    }
 
-            String sText = text.toString();
-            String[] docsTexts = sText.split("Document Number: [0-9]+");
+    private Document createDocument(String text, DocumentOpinion opinion) {
+        Document document = new Document(annotator, opinion);
+        document.setVocabulary(vocabulary);
+        document.setAnnotationCache(annotationCache);
+        document.setFilter(filter);
+        document.setPatternFeatures(patternFeatures);
+        document.setText(text);
 
-            for (String dText : docsTexts) {
-                if (dText.trim().isEmpty())
-                    continue;
+        return document;
+    }
 
-                Document document = new Document(pipeline, opinion);
-                document.setText(dText);
+    private void reportThroughput(File file, int documentsNumber, long elapsedNanos) {
+        if (!Metrics.isEnabled())
+            return;
 
-                documents.add(document);
-            }
+        double seconds = elapsedNanos / 1e9;
+        double docsPerSecond = (seconds > 0) ? documentsNumber / seconds : 0;
 
-            return documents;
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+        System.out.println(String.format(Locale.US, "Annotated %d documents from %s in %.2f s (%.1f docs/sec, %d thread(s))",
+                documentsNumber, file.getName(), seconds, docsPerSecond, threads));
 
-        return new ArrayList<>();
+        if (annotationCache != null)
+            System.out.println(annotationCache);
     }
 }
@@ -0,0 +1,112 @@
+package corpus;
+
+import java.io.*;
+import java.util.*;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Reads a corpus file line by line and yields the texts between
+ * "Document Number: N" headers one at a time, so only the document
+ * being assembled is held in memory.
+ */
+public class CorpusReader implements Iterator<String>, Closeable {
+    private static final Pattern DOCUMENT_HEADER = Pattern.compile("Document Number: [0-9]+");
+
+    private BufferedReader reader;
+
+    private StringBuilder text;
+    private Deque<String> readyTexts;
+
+    public CorpusReader(File file) throws IOException {
+        this(new InputStreamReader(new FileInputStream(file)));
+    }
+
+    public CorpusReader(Reader reader) {
+        this.reader = new BufferedReader(reader);
+        this.text = new StringBuilder();
+        this.readyTexts = new ArrayDeque<>();
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (readyTexts.isEmpty() && reader != null) {
+            readLine();
+        }
+
+        return !readyTexts.isEmpty();
+    }
+
+    @Override
+    public String next() {
+        if (!hasNext())
+            throw new NoSuchElementException();
+
+        return readyTexts.poll();
+    }
+
+    public Stream<String> stream() {
+        Spliterator<String> spliterator = Spliterators.spliteratorUnknownSize(this,
+                Spliterator.ORDERED | Spliterator.NONNULL);
+
+        return StreamSupport.stream(spliterator, false).onClose(() -> {
+            try {
+                close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (reader != null) {
+            reader.close();
+            reader = null;
+        }
+    }
+
+    private void readLine() {
+        String line;
+
+        try {
+            line = reader.readLine();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        if (line == null) {
+            finishText();
+
+            try {
+                close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+
+            return;
+        }
+
+        Matcher matcher = DOCUMENT_HEADER.matcher(line);
+        int start = 0;
+
+        while (matcher.find()) {
+            text.append(line, start, matcher.start());
+            finishText();
+            start = matcher.end();
+        }
+
+        text.append(line, start, line.length());
+        text.append("\n");
+    }
+
+    private void finishText() {
+        String dText = text.toString();
+        text.setLength(0);
+
+        if (!dText.trim().isEmpty())
+            readyTexts.add(dText);
+    }
+}
@@ -1,16 +1,13 @@
 package corpus;
 
-import edu.stanford.nlp.ling.CoreAnnotations;
-import edu.stanford.nlp.ling.CoreLabel;
 import edu.stanford.nlp.ling.IndexedWord;
-import edu.stanford.nlp.pipeline.Annotation;
 import edu.stanford.nlp.pipeline.StanfordCoreNLP;
 import edu.stanford.nlp.semgraph.SemanticGraph;
-import edu.stanford.nlp.semgraph.SemanticGraphCoreAnnotations;
 import edu.stanford.nlp.semgraph.SemanticGraphEdge;
-import edu.stanford.nlp.util.CoreMap;
+import util.LongIntMap;
+import util.Metrics;
 import util.POS;
-import util.Utils;
+import util.Vocabulary;
 import util.Word;
 
 import java.io.File;
@@ -23,48 +20,66 @@ import java.util.*;
  * Created by artem95 on 24.03.16.
  */
 public class Document {
-    private StanfordCoreNLP pipeline;
+    private Annotator annotator;
 
+    private Vocabulary vocabulary;
+
+    // sorted term ids of the document and their frequencies
+    private int[] termIds;
+    private int[] counts;
+
+    // sorted patterns of adjacent words as packed term id pairs and their frequencies
+    private long[] patternKeys;
+    private int[] patternCounts;
+
+    private boolean patternFeatures;
+
+    // Word view of the terms, built on the first request
     private List<Word> words;
-    private Map<Word, Word> uniqueWords;
 
-    private Set<String> removeWords;
+    // special words dropped while parsing the text
+    private SpecialWordFilter filter;
 
     private String text;
 
+    // position of the document in the inverted index of its corpus
+    private int id = -1;
+
     private DocumentOpinion opinion;
 
     private List<SemanticGraph> semanticGraphs;
 
-    public Document() {
-        Properties props = new Properties();
-        //props.setProperty("annotators", "tokenize, ssplit, pos, lemma, parse");
-        props.setProperty("annotators", "tokenize, ssplit, pos, lemma");
-        this.pipeline = new StanfordCoreNLP(props);
-
-        words = new ArrayList<>();
-        semanticGraphs = new ArrayList<>();
-        uniqueWords = new HashMap<>();
+    private AnnotationCache annotationCache;
 
-        opinion = DocumentOpinion.UNKNOWN;
+    /**
+     * Annotates with the shared default pipeline, models are loaded once per process.
+     */
+    public Document() {
+        this(new CoreNLPAnnotator());
     }
 
     public Document(StanfordCoreNLP pipeline) {
-        this.pipeline = pipeline;
+        this(new CoreNLPAnnotator(pipeline));
+    }
 
-        words = new ArrayList<>();
-        semanticGraphs = new ArrayList<>();
-        uniqueWords = new HashMap<>();
+    public Document(StanfordCoreNLP pipeline, DocumentOpinion opinion) {
+        this(new CoreNLPAnnotator(pipeline), opinion);
+    }
 
-        opinion = DocumentOpinion.UNKNOWN;
+    public Document(Annotator annotator) {
+        this(annotator, DocumentOpinion.UNKNOWN);
     }
 
-    public Document(StanfordCoreNLP pipeline, DocumentOpinion opinion) {
-        this.pipeline = pipeline;
+    public Document(Annotator annotator, DocumentOpinion opinion) {
+        this.annotator = annotator;
 
-        words = new ArrayList<>();
+        vocabulary = new Vocabulary();
+        filter = SpecialWordFilter.none();
+        termIds = new int[0];
+        counts = new int[0];
+        patternKeys = new long[0];
+        patternCounts = new int[0];
         semanticGraphs = new ArrayList<>();
-        uniqueWords = new HashMap<>();
 
         this.opinion = opinion;
     }
@@ -72,15 +87,41 @@ public class Document {
     public void setText(String text) {
         this.text = text;
 
-        words.clear();
         semanticGraphs.clear();
-        uniqueWords.clear();
 
         parseText(text);
-
-        words = extractWords();
     }
 
+    /**
+     * Terms are interned into the given vocabulary by the following setText/loadDocument calls.
+     */
+    public void setVocabulary(Vocabulary vocabulary) { this.vocabulary = vocabulary; }
+
+    public Vocabulary getVocabulary() { return this.vocabulary; }
+
+    /**
+     * Lemmas matched by the filter are skipped by the following setText/loadDocument calls.
+     */
+    public void setFilter(SpecialWordFilter filter) { this.filter = filter; }
+
+    /**
+     * @return filter applied to the terms of the document
+     */
+    public SpecialWordFilter getFilter() { return this.filter; }
+
+    public void setAnnotationCache(AnnotationCache annotationCache) { this.annotationCache = annotationCache; }
+
+    /**
+     * Whether the following setText/loadDocument calls also collect the word patterns of Patterns.
+     */
+    public void setPatternFeatures(boolean patternFeatures) { this.patternFeatures = patternFeatures; }
+
+    public boolean hasPatternFeatures() { return this.patternFeatures; }
+
+    public int getId() { return this.id; }
+
+    void setId(int id) { this.id = id; }
+
     public void setOpinion(DocumentOpinion opinion) { this.opinion = opinion; }
 
     public DocumentOpinion getOpinion() { return this.opinion; }
@@ -89,12 +130,43 @@ public class Document {
         File file = new File(fileAddress);
         text = loadText(file);
 
+        semanticGraphs.clear();
+
         parseText(text);
+    }
+
+    /**
+     * @return ids of the distinct terms of the document in ascending order, must not be modified
+     */
+    public int[] getTermIds() { return this.termIds; }
+
+    /**
+     * @return frequencies of the terms returned by getTermIds, must not be modified
+     */
+    public int[] getCounts() { return this.counts; }
 
-        words = extractWords();
+    public int getTermsNumber() { return this.termIds.length; }
+
+    /**
+     * @return distinct patterns as Patterns.key of their term ids in ascending order, must not be modified
+     */
+    public long[] getPatternKeys() { return this.patternKeys; }
+
+    /**
+     * @return frequencies of the patterns returned by getPatternKeys, must not be modified
+     */
+    public int[] getPatternCounts() { return this.patternCounts; }
+
+    public int getFrequency(int termId) {
+        int index = Arrays.binarySearch(termIds, termId);
+
+        return (index >= 0) ? counts[index] : 0;
     }
 
     public List<Word> getWords(POS... wordsPOS) {
+        if (words == null)
+            words = extractWords();
+
         if (wordsPOS == null || wordsPOS.length == 0)
             return this.words;
 
@@ -113,56 +185,61 @@ public class Document {
     }
 
     public void removeSpecialWords(SpecialWordType... specialWordsType) {
-        if (removeWords == null || removeWords.size() == 0) {
-
-            removeWords = new HashSet<>();
-
-            if (specialWordsType.length == 0) {
-                removeWords.addAll(loadAdditionalFile(Utils.stopWordsFileAddress));
-                removeWords.addAll(loadAdditionalFile(Utils.kernelFileAddress));
-                removeWords.addAll(loadAdditionalFile(Utils.peripheryFileAddress));
-            } else {
-                for (SpecialWordType type : specialWordsType) {
-                    if (type.equals(SpecialWordType.STOP_WORD))
-                        removeWords.addAll(loadAdditionalFile(Utils.stopWordsFileAddress));
-                    else if (type.equals(SpecialWordType.KERNEL_WORD))
-                        removeWords.addAll(loadAdditionalFile(Utils.kernelFileAddress));
-                    else if (type.equals(SpecialWordType.PERIPHERY_WORD))
-                        removeWords.addAll(loadAdditionalFile(Utils.peripheryFileAddress));
-                }
+        removeSpecialWords(SpecialWordFilter.get(specialWordsType));
+    }
+
+    /**
+     * Removes the filtered terms, nothing is done if they were already removed or skipped while parsing.
+     * The arrays returned so far are left untouched, the remaining terms are copied into new ones.
+     */
+    public void removeSpecialWords(SpecialWordFilter specialWords) {
+        if (filter.covers(specialWords))
+            return;
+
+        int[] newTermIds = new int[termIds.length];
+        int[] newCounts = new int[termIds.length];
+        int size = 0;
+
+        for (int i = 0; i < termIds.length; ++i) {
+            if (!specialWords.contains(vocabulary.getLemma(termIds[i]))) {
+                newTermIds[size] = termIds[i];
+                newCounts[size] = counts[i];
+                ++size;
             }
         }
 
-        List<Word> result = new ArrayList<>();
+        termIds = Arrays.copyOf(newTermIds, size);
+        counts = Arrays.copyOf(newCounts, size);
 
-        for (Word word : words) {
-            if (!removeWords.contains(word.getWord())) {
-                result.add(word);
+        long[] newPatternKeys = new long[patternKeys.length];
+        int[] newPatternCounts = new int[patternKeys.length];
+        size = 0;
+
+        for (int i = 0; i < patternKeys.length; ++i) {
+            if (!specialWords.contains(vocabulary.getLemma(Patterns.firstId(patternKeys[i])))
+                    && !specialWords.contains(vocabulary.getLemma(Patterns.secondId(patternKeys[i])))) {
+                newPatternKeys[size] = patternKeys[i];
+                newPatternCounts[size] = patternCounts[i];
+                ++size;
             }
         }
 
-        words.clear();
-        words = result;
-    }
-
-    public void setSpecialWords(Set<String> specialWords) { this.removeWords = specialWords; }
+        patternKeys = Arrays.copyOf(newPatternKeys, size);
+        patternCounts = Arrays.copyOf(newPatternCounts, size);
 
-    private Set<String> loadAdditionalFile(String fileAddress) {
-        Set<String> words = new HashSet<>();
+        if (words != null) {
+            List<Word> result = new ArrayList<>();
 
-        try {
-            File file = new File(fileAddress);
-            InputStream in = new FileInputStream(file);
-            Scanner scan = new Scanner(in);
-
-            while (scan.hasNextLine()) {
-                words.add(scan.nextLine());
+            for (Word word : words) {
+                if (!specialWords.contains(word.getWord())) {
+                    result.add(word);
+                }
             }
-        } catch (IOException e) {
-            e.printStackTrace();
+
+            words = result;
         }
 
-        return words;
+        filter = filter.union(specialWords);
     }
 
     @Override
@@ -172,7 +249,10 @@ public class Document {
 
         Document document = (Document) o;
 
-        if (words != null ? !words.equals(document.words) : document.words != null) return false;
+        if (!Arrays.equals(termIds, document.termIds)) return false;
+        if (!Arrays.equals(counts, document.counts)) return false;
+        if (!Arrays.equals(patternKeys, document.patternKeys)) return false;
+        if (!Arrays.equals(patternCounts, document.patternCounts)) return false;
         if (text != null ? !text.equals(document.text) : document.text != null) return false;
         return opinion == document.opinion;
 
@@ -188,10 +268,8 @@ public class Document {
         Map<String, List<Word>> result = new HashMap<>();
         Set<String> kernel;
 
-        if (type == SpecialWordType.KERNEL_WORD)
-            kernel = loadAdditionalFile(Utils.kernelFileAddress);
-        else if  (type == SpecialWordType.PERIPHERY_WORD)
-            kernel = loadAdditionalFile(Utils.peripheryFileAddress);
+        if (type == SpecialWordType.KERNEL_WORD || type == SpecialWordType.PERIPHERY_WORD)
+            kernel = SpecialWordFilter.get(type).getWords();
         else
             kernel = new HashSet<>();
 
@@ -235,66 +313,119 @@ public class Document {
     }
 
     private List<Word> extractWords() {
-        List<Word> words = new ArrayList<>(uniqueWords.values());
+        List<Word> words = new ArrayList<>(termIds.length);
+
+        for (int i = 0; i < termIds.length; ++i) {
+            Word word = vocabulary.getWord(termIds[i]);
+            word.addOccurrences(opinion, counts[i]);
+
+            words.add(word);
+        }
+
         Collections.sort(words);
-        words = removeDuplicates(words);
 
         return words;
     }
 
     private void parseText(String text) {
-        Annotation document = new Annotation(text);
-        Word word, temp;
+        long start = Metrics.start();
+        int[] ids = new int[256];
+        int size = 0;
+        int tokensNumber = 0;
 
-        this.pipeline.annotate(document);
+        LongIntMap patterns = patternFeatures ? new LongIntMap() : null;
 
-        List<CoreMap> sentences = document.get(CoreAnnotations.SentencesAnnotation.class);
+        for (List<Token> sentence : annotate(text)) {
+            // previous token of the sentence and its term id, -1 if it is not a term
+            Token previous = null;
+            int previousId = -1;
 
-        for (CoreMap sentence : sentences) {
-            for (CoreLabel token: sentence.get(CoreAnnotations.TokensAnnotation.class)) {
-                word = new Word(token);
+            tokensNumber += sentence.size();
 
-                if (!word.isWord())
-                    continue;
+            for (Token token : sentence) {
+                POS pos = POS.fromString(token.getTag());
+                int id = -1;
 
-                uniqueWords.putIfAbsent(word, word);
+                if (pos != POS.UNKNOWN) {
+                    String lemma = token.getLemma().trim().toLowerCase();
 
-                temp = uniqueWords.get(word);
-                temp.addOccurrence(this);
+                    // filtered words never reach the vocabulary
+                    if (!filter.contains(lemma)) {
+                        if (size == ids.length)
+                            ids = Arrays.copyOf(ids, 2 * size);
 
-                uniqueWords.put(word, temp);
+                        id = vocabulary.getId(lemma, pos);
+                        ids[size++] = id;
+                    }
+                }
+
+                if (patterns != null && id >= 0 && previousId >= 0
+                        && Patterns.matches(previous.getTag(), token.getTag()))
+                    patterns.add(Patterns.key(previousId, id), 1);
+
+                previous = token;
+                previousId = id;
             }
+        }
 
-            /*SemanticGraph dependencies =
-                    sentence.get(SemanticGraphCoreAnnotations.CollapsedCCProcessedDependenciesAnnotation.class);
+        if (patterns != null) {
+            patternKeys = patterns.sortedKeys();
+            patternCounts = new int[patternKeys.length];
 
-            semanticGraphs.add(dependencies);*/
+            for (int i = 0; i < patternKeys.length; ++i) {
+                patternCounts[i] = patterns.get(patternKeys[i], 0);
+            }
+        } else {
+            patternKeys = new long[0];
+            patternCounts = new int[0];
         }
 
-    }
+        Arrays.sort(ids, 0, size);
 
-    private List<Word> removeDuplicates(List<Word> words) {
-        Word word1, word2;
-        List<Word> cleanedList = new ArrayList<>();
+        int distinct = 0;
 
-        for (int i = 0; i < words.size(); ++i) {
-            word1 = words.get(i);
+        for (int i = 0; i < size; ++i) {
+            if (i == 0 || ids[i] != ids[i - 1])
+                ++distinct;
+        }
 
-            for (int j = i + 1; j < words.size(); ++j) {
-                word2 = words.get(j);
+        termIds = new int[distinct];
+        counts = new int[distinct];
 
-                if (word1.canMerge(word2)) {
-                    word1.merge(word2);
-                } else {
-                    i = j - 1;
-                    break;
-                }
+        for (int i = 0, j = -1; i < size; ++i) {
+            if (i == 0 || ids[i] != ids[i - 1])
+                termIds[++j] = ids[i];
+
+            ++counts[j];
+        }
+
+        words = null;
+
+        Metrics.increment(Metrics.DOCUMENTS);
+        Metrics.add(Metrics.TOKENS, tokensNumber);
+        Metrics.stop(Metrics.DOCUMENT_PARSING, start);
+    }
+
+    private List<List<Token>> annotate(String text) {
+        if (annotationCache != null) {
+            List<List<Token>> cached = annotationCache.get(annotator.getName(), text);
+
+            if (cached != null) {
+                Metrics.increment(Metrics.ANNOTATION_CACHE_HITS);
+                return cached;
             }
 
-            cleanedList.add(word1);
+            Metrics.increment(Metrics.ANNOTATION_CACHE_MISSES);
         }
 
-        return cleanedList;
+        long start = Metrics.start();
+        List<List<Token>> result = annotator.annotate(text);
+        Metrics.stop(Metrics.ANNOTATION, start);
+
+        if (annotationCache != null)
+            annotationCache.put(annotator.getName(), text, result);
+
+        return result;
     }
 
     private String loadText(File file) {
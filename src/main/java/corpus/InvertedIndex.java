@@ -0,0 +1,210 @@
+package corpus;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Postings of a document collection: for every term id a list of
+ * (document id, term frequency) sorted by document id. Document ids are
+ * the positions of the documents in the indexed list. Postings are stored
+ * as variable-length encoded document id gaps and frequencies.
+ */
+public class InvertedIndex {
+    private static final int INITIAL_POSTINGS_SIZE = 8;
+
+    private final List<Document> documents;
+    private final DocumentOpinion[] opinions;
+
+    private final byte[][] postings;
+
+    private final int[] documentFrequencies;
+    private final int[][] docsNumberPerOpinion;
+    private final long[][] frequencyPerOpinion;
+
+    /**
+     * Builds the index in one pass over the documents, which must all use the same vocabulary.
+     */
+    public InvertedIndex(List<Document> documents, int vocabularySize) {
+        int opinionsNumber = DocumentOpinion.values().length;
+
+        this.documents = new ArrayList<>(documents);
+        this.opinions = new DocumentOpinion[documents.size()];
+
+        this.postings = new byte[vocabularySize][];
+        this.documentFrequencies = new int[vocabularySize];
+        this.docsNumberPerOpinion = new int[opinionsNumber][vocabularySize];
+        this.frequencyPerOpinion = new long[opinionsNumber][vocabularySize];
+
+        int[] postingsLength = new int[vocabularySize];
+        int[] lastDocId = new int[vocabularySize];
+
+        for (int docId = 0; docId < documents.size(); ++docId) {
+            Document document = documents.get(docId);
+            int opinion = document.getOpinion().ordinal();
+            int[] termIds = document.getTermIds();
+            int[] counts = document.getCounts();
+
+            opinions[docId] = document.getOpinion();
+
+            for (int i = 0; i < termIds.length; ++i) {
+                int termId = termIds[i];
+
+                if (termId >= vocabularySize)
+                    continue;
+
+                if (postings[termId] == null)
+                    postings[termId] = new byte[INITIAL_POSTINGS_SIZE];
+
+                // ids start from 0, so the first gap of every list is docId + 1 and never 0
+                postingsLength[termId] = writeVarInt(termId, docId - lastDocId[termId] + 1, postingsLength[termId]);
+                postingsLength[termId] = writeVarInt(termId, counts[i], postingsLength[termId]);
+                lastDocId[termId] = docId + 1;
+
+                ++documentFrequencies[termId];
+                ++docsNumberPerOpinion[opinion][termId];
+                frequencyPerOpinion[opinion][termId] += counts[i];
+            }
+        }
+
+        for (int termId = 0; termId < vocabularySize; ++termId) {
+            if (postings[termId] != null)
+                postings[termId] = Arrays.copyOf(postings[termId], postingsLength[termId]);
+        }
+    }
+
+    public int getDocumentsNumber() { return this.documents.size(); }
+
+    public Document getDocument(int docId) { return this.documents.get(docId); }
+
+    public DocumentOpinion getOpinion(int docId) { return this.opinions[docId]; }
+
+    public int getDocumentFrequency(int termId) {
+        return (isIndexed(termId)) ? documentFrequencies[termId] : 0;
+    }
+
+    public int getDocsNumber(int termId, DocumentOpinion opinion) {
+        return (isIndexed(termId)) ? docsNumberPerOpinion[opinion.ordinal()][termId] : 0;
+    }
+
+    public long getFrequency(int termId, DocumentOpinion opinion) {
+        return (isIndexed(termId)) ? frequencyPerOpinion[opinion.ordinal()][termId] : 0;
+    }
+
+    public int getFrequencyInDoc(int termId, int docId) {
+        if (!isIndexed(termId) || postings[termId] == null)
+            return 0;
+
+        byte[] list = postings[termId];
+        int[] position = new int[1];
+        int currentDocId = -1;
+
+        while (position[0] < list.length) {
+            currentDocId += readVarInt(list, position);
+            int frequency = readVarInt(list, position);
+
+            if (currentDocId == docId)
+                return frequency;
+            else if (currentDocId > docId)
+                break;
+        }
+
+        return 0;
+    }
+
+    /**
+     * @return ids of the documents containing the term in ascending order
+     */
+    public int[] getDocumentIds(int termId) {
+        if (!isIndexed(termId) || postings[termId] == null)
+            return new int[0];
+
+        byte[] list = postings[termId];
+        int[] docIds = new int[documentFrequencies[termId]];
+        int[] position = new int[1];
+        int currentDocId = -1;
+
+        for (int i = 0; i < docIds.length; ++i) {
+            currentDocId += readVarInt(list, position);
+            readVarInt(list, position);
+
+            docIds[i] = currentDocId;
+        }
+
+        return docIds;
+    }
+
+    /**
+     * Adds, per opinion ordinal, the number of the selected documents containing the term
+     * and its total frequency in them.
+     */
+    public void countInDocuments(int termId, BitSet docIds, int[] docsNumbers, long[] frequencies) {
+        if (!isIndexed(termId) || postings[termId] == null)
+            return;
+
+        byte[] list = postings[termId];
+        int[] position = new int[1];
+        int currentDocId = -1;
+
+        while (position[0] < list.length) {
+            currentDocId += readVarInt(list, position);
+            int frequency = readVarInt(list, position);
+
+            if (docIds.get(currentDocId)) {
+                int opinion = opinions[currentDocId].ordinal();
+
+                ++docsNumbers[opinion];
+                frequencies[opinion] += frequency;
+            }
+        }
+    }
+
+    public List<Document> getDocumentsContaining(int termId) {
+        int[] docIds = getDocumentIds(termId);
+        List<Document> result = new ArrayList<>(docIds.length);
+
+        for (int docId : docIds) {
+            result.add(documents.get(docId));
+        }
+
+        return result;
+    }
+
+    private boolean isIndexed(int termId) {
+        return termId >= 0 && termId < postings.length;
+    }
+
+    private int writeVarInt(int termId, int value, int position) {
+        byte[] list = postings[termId];
+
+        while (true) {
+            if (position == list.length) {
+                list = Arrays.copyOf(list, 2 * list.length);
+                postings[termId] = list;
+            }
+
+            if ((value & ~0x7F) == 0) {
+                list[position++] = (byte) value;
+                return position;
+            }
+
+            list[position++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+    }
+
+    private static int readVarInt(byte[] list, int[] position) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+
+        do {
+            b = list[position[0]++];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while ((b & 0x80) != 0);
+
+        return value;
+    }
+}
@@ -0,0 +1,39 @@
+package corpus;
+
+/**
+ * Two-word patterns used as classifier features: adjective-noun, adverb-adjective,
+ * adjective-adjective, noun-adjective and adverb-verb pairs of adjacent tokens.
+ * A pattern is stored as the vocabulary ids of its words packed into a long.
+ */
+public final class Patterns {
+    private Patterns() {
+    }
+
+    public static boolean matches(String tag1, String tag2) {
+        if (tag1.equals("JJ") && (tag2.equals("NN") || tag2.equals("NNS")))
+            return true;
+        else if ((tag1.equals("RB") || tag1.equals("RBR") || tag1.equals("RBS")) && tag2.equals("JJ"))
+            return true;
+        else if (tag1.equals("JJ") && tag2.equals("JJ"))
+            return true;
+        else if ((tag1.equals("NN") || tag1.equals("NNS")) && tag2.equals("JJ"))
+            return true;
+        else if ((tag1.equals("RB") || tag1.equals("RBR") || tag1.equals("RBS")) &&
+                (tag2.equals("VB") || tag2.equals("VBD") || tag2.equals("VBN") || tag2.equals("VBG")))
+            return true;
+        else
+            return false;
+    }
+
+    public static long key(int firstId, int secondId) {
+        return ((long) firstId << 32) | (secondId & 0xFFFFFFFFL);
+    }
+
+    public static int firstId(long key) {
+        return (int) (key >>> 32);
+    }
+
+    public static int secondId(long key) {
+        return (int) key;
+    }
+}
@@ -0,0 +1,122 @@
+package corpus;
+
+import edu.stanford.nlp.pipeline.StanfordCoreNLP;
+import util.Metrics;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Process-wide CoreNLP pipelines, one per annotators configuration, built
+ * on the first request. Pipelines of the tokenize, ssplit, pos and lemma
+ * annotators are thread-safe, so one instance is shared by all documents.
+ * A pipeline is built by the first requesting thread outside of the map,
+ * the other threads of the configuration wait for its future.
+ */
+public final class PipelineProvider {
+    public static final String DEFAULT_ANNOTATORS = "tokenize, ssplit, pos, lemma";
+
+    private static final ConcurrentMap<String, FutureTask<StanfordCoreNLP>> pipelines = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, Long> constructionTimes = new ConcurrentHashMap<>();
+
+    private PipelineProvider() {
+    }
+
+    public static StanfordCoreNLP getDefault() {
+        return get(DEFAULT_ANNOTATORS);
+    }
+
+    /**
+     * @param annotators comma separated CoreNLP annotators, e.g. "tokenize, ssplit, pos, lemma"
+     * @return shared pipeline, concurrent first requests of a configuration wait for one construction
+     */
+    public static StanfordCoreNLP get(String annotators) {
+        String configuration = normalize(annotators);
+        FutureTask<StanfordCoreNLP> pipeline = pipelines.get(configuration);
+
+        if (pipeline == null) {
+            FutureTask<StanfordCoreNLP> task = new FutureTask<>(() -> create(configuration));
+            pipeline = pipelines.putIfAbsent(configuration, task);
+
+            if (pipeline == null) {
+                pipeline = task;
+                task.run();
+            }
+        }
+
+        try {
+            return pipeline.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for CoreNLP pipeline [" + configuration + "]", e);
+        } catch (ExecutionException e) {
+            // a failed construction is not kept, the next request tries again
+            pipelines.remove(configuration, pipeline);
+            throw new IllegalStateException("Cannot build CoreNLP pipeline [" + configuration + "]", e.getCause());
+        }
+    }
+
+    /**
+     * Builds the pipelines of the given configurations, of the default one if none is given,
+     * so the model loading does not delay the first document.
+     */
+    public static void warmUp(String... annotators) {
+        if (annotators.length == 0) {
+            getDefault();
+            return;
+        }
+
+        for (String configuration : annotators) {
+            get(configuration);
+        }
+    }
+
+    public static boolean isInitialized(String annotators) {
+        return constructionTimes.containsKey(normalize(annotators));
+    }
+
+    /**
+     * @return nanoseconds spent building the pipeline or -1 if it was not built yet
+     */
+    public static long getConstructionTime(String annotators) {
+        Long time = constructionTimes.get(normalize(annotators));
+
+        return (time != null) ? time : -1;
+    }
+
+    /**
+     * @return nanoseconds spent building each constructed configuration
+     */
+    public static Map<String, Long> getConstructionTimes() {
+        return Collections.unmodifiableMap(new TreeMap<>(constructionTimes));
+    }
+
+    private static StanfordCoreNLP create(String annotators) {
+        long start = System.nanoTime();
+        long metricsStart = Metrics.start();
+
+        Properties props = new Properties();
+        props.setProperty("annotators", annotators);
+        StanfordCoreNLP pipeline = new StanfordCoreNLP(props);
+
+        long elapsed = System.nanoTime() - start;
+        constructionTimes.put(annotators, elapsed);
+        Metrics.stop(Metrics.PIPELINE_CONSTRUCTION, metricsStart);
+
+        return pipeline;
+    }
+
+    private static String normalize(String annotators) {
+        StringJoiner result = new StringJoiner(", ");
+
+        for (String annotator : annotators.split(",")) {
+            if (!annotator.trim().isEmpty())
+                result.add(annotator.trim());
+        }
+
+        return result.toString();
+    }
+}
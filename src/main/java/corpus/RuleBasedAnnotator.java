@@ -0,0 +1,200 @@
+package corpus;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+
+/**
+ * Fast annotator for inference: a character-level tokenizer and a table of
+ * word forms with their most frequent lemma and tag, mined from texts
+ * annotated by a full pipeline. Forms missing from the table are tagged by
+ * suffix rules. Trades annotation fidelity for throughput.
+ */
+public class RuleBasedAnnotator implements Annotator {
+    public static final String NAME = "rules";
+
+    // lower-cased word form -> its lemma and tag, never modified after construction
+    private final Map<String, Token> table;
+
+    private final String name;
+
+    public RuleBasedAnnotator(Map<String, Token> table) {
+        this.table = Collections.unmodifiableMap(new HashMap<>(table));
+
+        // annotations of different tables must not share cache entries
+        this.name = NAME + "-" + AnnotationCache.sha1(String.join("\n", toLines()));
+    }
+
+    /**
+     * Loads a table saved by save: one "form \t lemma \t tag" line per word form.
+     */
+    public static RuleBasedAnnotator load(String fileAddress) throws IOException {
+        Map<String, Token> table = new HashMap<>();
+
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(fileAddress), StandardCharsets.UTF_8)) {
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                String[] values = line.split("\t");
+
+                if (values.length == 3)
+                    table.put(values[0], new Token(values[0], values[1], values[2]));
+            }
+        }
+
+        return new RuleBasedAnnotator(table);
+    }
+
+    public void save(String fileAddress) {
+        try {
+            Files.write(Paths.get(fileAddress), toLines(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    @Override
+    public List<List<Token>> annotate(String text) {
+        List<List<Token>> sentences = new ArrayList<>();
+        List<Token> sentence = new ArrayList<>();
+        int length = text.length();
+        int i = 0;
+
+        while (i < length) {
+            char c = text.charAt(i);
+
+            if (Character.isWhitespace(c)) {
+                ++i;
+                continue;
+            }
+
+            int end = i + 1;
+
+            if (Character.isLetterOrDigit(c)) {
+                // apostrophes, hyphens and dots between letters or digits stay inside the word
+                while (end < length && (Character.isLetterOrDigit(text.charAt(end))
+                        || (isJoiner(text.charAt(end)) && end + 1 < length
+                            && Character.isLetterOrDigit(text.charAt(end + 1))))) {
+                    ++end;
+                }
+            }
+
+            String word = text.substring(i, end);
+            sentence.add(annotateWord(word));
+
+            if (c == '.' || c == '!' || c == '?') {
+                sentences.add(sentence);
+                sentence = new ArrayList<>();
+            }
+
+            i = end;
+        }
+
+        if (!sentence.isEmpty())
+            sentences.add(sentence);
+
+        return sentences;
+    }
+
+    @Override
+    public String getName() { return this.name; }
+
+    public int size() { return this.table.size(); }
+
+    // sorted "form \t lemma \t tag" lines of the table
+    private List<String> toLines() {
+        List<String> lines = new ArrayList<>(table.size());
+
+        for (Token token : table.values()) {
+            lines.add(token.getWord() + "\t" + token.getLemma() + "\t" + token.getTag());
+        }
+
+        Collections.sort(lines);
+
+        return lines;
+    }
+
+    private Token annotateWord(String word) {
+        String form = word.toLowerCase();
+        Token known = table.get(form);
+
+        if (known != null)
+            return new Token(word, known.getLemma(), known.getTag());
+
+        if (!Character.isLetterOrDigit(word.charAt(0)))
+            return new Token(word, word, word);
+
+        if (Character.isDigit(word.charAt(0)))
+            return new Token(word, form, "CD");
+
+        if (form.endsWith("ly"))
+            return new Token(word, form, "RB");
+
+        if (form.endsWith("ing"))
+            return new Token(word, form, "VBG");
+
+        if (form.endsWith("ed"))
+            return new Token(word, form, "VBD");
+
+        if (form.endsWith("ous") || form.endsWith("ful") || form.endsWith("ive") || form.endsWith("able")
+                || form.endsWith("al") || form.endsWith("less") || form.endsWith("ic"))
+            return new Token(word, form, "JJ");
+
+        if (form.length() > 3 && form.endsWith("s") && !form.endsWith("ss") && !form.endsWith("us")
+                && !form.endsWith("is"))
+            return new Token(word, form.substring(0, form.length() - 1), "NNS");
+
+        return new Token(word, form, "NN");
+    }
+
+    private static boolean isJoiner(char c) {
+        return c == '\'' || c == '-' || c == '.';
+    }
+
+    /**
+     * Collects (lemma, tag) frequencies of word forms from annotated texts.
+     */
+    public static class Builder {
+        private final Map<String, Map<Token, Integer>> forms = new HashMap<>();
+
+        public synchronized Builder add(List<List<Token>> sentences) {
+            for (List<Token> sentence : sentences) {
+                for (Token token : sentence) {
+                    String form = token.getWord().toLowerCase();
+
+                    forms.computeIfAbsent(form, f -> new HashMap<>())
+                            .merge(new Token(form, token.getLemma(), token.getTag()), 1, Integer::sum);
+                }
+            }
+
+            return this;
+        }
+
+        /**
+         * @return annotator tagging every known form with its most frequent lemma and tag
+         */
+        public synchronized RuleBasedAnnotator build() {
+            Map<String, Token> table = new HashMap<>();
+
+            for (Map.Entry<String, Map<Token, Integer>> form : forms.entrySet()) {
+                Token best = null;
+                int bestCount = 0;
+
+                for (Map.Entry<Token, Integer> candidate : form.getValue().entrySet()) {
+                    // ties are broken by the token text, so the table does not depend on hash order
+                    if (candidate.getValue() > bestCount || (candidate.getValue() == bestCount
+                            && candidate.getKey().toString().compareTo(best.toString()) < 0)) {
+                        best = candidate.getKey();
+                        bestCount = candidate.getValue();
+                    }
+                }
+
+                table.put(form.getKey(), best);
+            }
+
+            return new RuleBasedAnnotator(table);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package corpus;
+
+import util.Utils;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Immutable set of special words (stop, kernel and periphery words) matched
+ * against lemmas. Every word list is read from disk once per process and
+ * filters are shared between all documents, corpora and classifiers.
+ */
+public final class SpecialWordFilter {
+    private static final SpecialWordFilter NONE =
+            new SpecialWordFilter(EnumSet.noneOf(SpecialWordType.class), Collections.<String>emptySet());
+
+    private static final ConcurrentMap<SpecialWordType, Set<String>> wordLists = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<Set<SpecialWordType>, SpecialWordFilter> filters = new ConcurrentHashMap<>();
+
+    private final Set<SpecialWordType> types;
+    private final Set<String> words;
+
+    private SpecialWordFilter(Set<SpecialWordType> types, Set<String> words) {
+        this.types = Collections.unmodifiableSet(types);
+        this.words = Collections.unmodifiableSet(words);
+    }
+
+    /**
+     * @return filter which does not remove anything
+     */
+    public static SpecialWordFilter none() {
+        return NONE;
+    }
+
+    /**
+     * @return shared filter of the given word types, of all types if none is given
+     */
+    public static SpecialWordFilter get(SpecialWordType... types) {
+        EnumSet<SpecialWordType> typeSet = (types.length == 0)
+                ? EnumSet.allOf(SpecialWordType.class)
+                : EnumSet.copyOf(Arrays.asList(types));
+
+        return filters.computeIfAbsent(typeSet, SpecialWordFilter::create);
+    }
+
+    public boolean contains(String lemma) {
+        return words.contains(lemma);
+    }
+
+    /**
+     * @return true if everything removed by the other filter is removed by this one as well
+     */
+    public boolean covers(SpecialWordFilter other) {
+        return this.types.containsAll(other.types);
+    }
+
+    /**
+     * @return shared filter removing the words of both filters
+     */
+    public SpecialWordFilter union(SpecialWordFilter other) {
+        if (this.covers(other))
+            return this;
+        if (other.covers(this))
+            return other;
+
+        EnumSet<SpecialWordType> typeSet = EnumSet.copyOf(this.types);
+        typeSet.addAll(other.types);
+
+        return filters.computeIfAbsent(typeSet, SpecialWordFilter::create);
+    }
+
+    public boolean isEmpty() {
+        return words.isEmpty();
+    }
+
+    public Set<SpecialWordType> getTypes() { return this.types; }
+
+    public Set<String> getWords() { return this.words; }
+
+    public String toString() {
+        return "SpecialWordFilter" + types + ": " + words.size() + " words";
+    }
+
+    private static SpecialWordFilter create(Set<SpecialWordType> types) {
+        Set<String> words = new HashSet<>();
+
+        for (SpecialWordType type : types) {
+            words.addAll(wordLists.computeIfAbsent(type, SpecialWordFilter::loadWords));
+        }
+
+        return new SpecialWordFilter(EnumSet.copyOf(types), words);
+    }
+
+    private static Set<String> loadWords(SpecialWordType type) {
+        switch (type) {
+            case STOP_WORD:
+                return loadAdditionalFile(Utils.stopWordsFileAddress);
+            case KERNEL_WORD:
+                return loadAdditionalFile(Utils.kernelFileAddress);
+            case PERIPHERY_WORD:
+                return loadAdditionalFile(Utils.peripheryFileAddress);
+            default:
+                throw new IllegalArgumentException("Unknown special word type " + type);
+        }
+    }
+
+    private static Set<String> loadAdditionalFile(String fileAddress) {
+        Set<String> words = new HashSet<>();
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(fileAddress)))) {
+            String line;
+
+            while ((line = reader.readLine()) != null) {
+                words.add(line);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
+        return Collections.unmodifiableSet(words);
+    }
+}
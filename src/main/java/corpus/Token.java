@@ -0,0 +1,55 @@
+package corpus;
+
+import edu.stanford.nlp.ling.CoreAnnotations;
+import edu.stanford.nlp.ling.CoreLabel;
+
+/**
+ * Annotated token: surface form, lemma and Penn Treebank POS tag.
+ */
+public class Token {
+    private final String word;
+    private final String lemma;
+    private final String tag;
+
+    public Token(String word, String lemma, String tag) {
+        this.word = word;
+        this.lemma = lemma;
+        this.tag = tag;
+    }
+
+    public Token(CoreLabel label) {
+        this(label.get(CoreAnnotations.TextAnnotation.class),
+                label.get(CoreAnnotations.LemmaAnnotation.class),
+                label.get(CoreAnnotations.PartOfSpeechAnnotation.class));
+    }
+
+    public String getWord() { return this.word; }
+
+    public String getLemma() { return this.lemma; }
+
+    public String getTag() { return this.tag; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof Token)) return false;
+
+        Token token = (Token) o;
+
+        if (word != null ? !word.equals(token.word) : token.word != null) return false;
+        if (lemma != null ? !lemma.equals(token.lemma) : token.lemma != null) return false;
+        return tag != null ? tag.equals(token.tag) : token.tag == null;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = word != null ? word.hashCode() : 0;
+        result = 31 * result + (lemma != null ? lemma.hashCode() : 0);
+        result = 31 * result + (tag != null ? tag.hashCode() : 0);
+        return result;
+    }
+
+    public String toString() {
+        return word + "/" + lemma + "/" + tag;
+    }
+}
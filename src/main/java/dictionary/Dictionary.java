@@ -1,5 +1,6 @@
 package dictionary;
 
+import util.Metrics;
 import util.Word;
 
 import java.io.File;
@@ -19,6 +20,9 @@ import java.util.stream.Collectors;
 public class Dictionary {
     private HashMap<Word, Word> dictionary;
 
+    // compiled words loaded by loadLexicon, the map holds only words added after it
+    private Lexicon lexicon;
+
     public Dictionary() {
         dictionary = new HashMap<>();
     }
@@ -32,6 +36,7 @@ public class Dictionary {
     }
 
     public void loadDictionary(String dictionaryAddress) {
+        long start = Metrics.start();
         Word word;
 
         try {
@@ -44,20 +49,75 @@ public class Dictionary {
             while (scanner.hasNextLine()) {
                 line = scanner.nextLine();
                 word = Word.parseWord(line);
-                dictionary.put(word, word);
+
+                if (word != null)
+                    dictionary.put(word, word);
             }
 
         } catch(IOException e) {
             e.printStackTrace();
         }
+
+        Metrics.stop(Metrics.DICTIONARY_LOADING, start);
+    }
+
+    /**
+     * Maps a lexicon compiled by saveLexicon, its words are looked up in the file in place.
+     */
+    public void loadLexicon(String lexiconAddress) {
+        try {
+            lexicon = Lexicon.load(lexiconAddress);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Compiles all words of the dictionary into a lexicon file.
+     */
+    public void saveLexicon(String lexiconAddress) {
+        try {
+            Lexicon.save(getWords(), lexiconAddress);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
     }
 
     public Set<Word> getWords() {
-        return this.dictionary.keySet();
+        if (lexicon == null)
+            return this.dictionary.keySet();
+
+        Set<Word> words = new HashSet<>(dictionary.keySet());
+
+        for (int i = 0; i < lexicon.size(); ++i) {
+            words.add(lexicon.getWord(i));
+        }
+
+        return words;
     }
 
     public boolean containsWord(Word word) {
-        return dictionary.containsKey(word);
+        return dictionary.containsKey(word) ||
+                (lexicon != null && lexicon.contains(word.getWord(), word.getPOS()));
+    }
+
+    /**
+     * @return mark of the word or null if the dictionary does not contain it
+     */
+    public Double getMark(Word word) {
+        Word dictionaryWord = dictionary.get(word);
+
+        if (dictionaryWord != null)
+            return dictionaryWord.getMark();
+
+        if (lexicon != null) {
+            int index = lexicon.find(word.getWord(), word.getPOS());
+
+            if (index != Lexicon.NOT_FOUND)
+                return (double) lexicon.getMark(index);
+        }
+
+        return null;
     }
 
     public void saveDictionary(String fileAddress) {
@@ -72,6 +132,7 @@ public class Dictionary {
 
     public void clear() {
         dictionary.clear();
+        lexicon = null;
     }
 
     public void add(Word word) {
@@ -79,7 +140,7 @@ public class Dictionary {
     }
 
     private List<String> toStringLines() {
-        List<String> lines = dictionary.values().stream().map(Word::toString).collect(Collectors.toList());
+        List<String> lines = getWords().stream().map(Word::toString).collect(Collectors.toList());
         Collections.sort(lines);
 
         return lines;
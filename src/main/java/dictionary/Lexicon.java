@@ -0,0 +1,225 @@
+package dictionary;
+
+import util.POS;
+import util.Word;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * Compiled read-only dictionary of marked words kept in one memory-mapped file.
+ *
+ * Layout (big-endian): magic, version, entries number n, int[n + 1] offsets of the
+ * lemmas in the lemma section, byte[n] POS ordinals, float[n] marks, UTF-8 lemmas.
+ * Entries are sorted by lemma bytes and POS, lookups are binary searches comparing
+ * the query directly against the mapped bytes without allocating.
+ */
+public class Lexicon {
+    private static final int MAGIC = 0x4C455843; // "LEXC"
+    private static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 3 * Integer.BYTES;
+
+    public static final int NOT_FOUND = -1;
+
+    private final ByteBuffer buffer;
+    private final int size;
+
+    private final int offsetsStart;
+    private final int posStart;
+    private final int marksStart;
+    private final int lemmasStart;
+
+    private Lexicon(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+
+        if (buffer.getInt(0) != MAGIC)
+            throw new IOException("Not a lexicon file");
+
+        if (buffer.getInt(Integer.BYTES) != VERSION)
+            throw new IOException("Unsupported lexicon version " + buffer.getInt(Integer.BYTES));
+
+        this.size = buffer.getInt(2 * Integer.BYTES);
+
+        this.offsetsStart = HEADER_SIZE;
+        this.posStart = offsetsStart + (size + 1) * Integer.BYTES;
+        this.marksStart = posStart + size;
+        this.lemmasStart = marksStart + size * Float.BYTES;
+    }
+
+    public static Lexicon load(String lexiconAddress) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(lexiconAddress), StandardOpenOption.READ)) {
+            return new Lexicon(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Writes the words into a lexicon file, words with equal lemma and POS are written once.
+     */
+    public static void save(Collection<Word> words, String lexiconAddress) throws IOException {
+        List<Word> entries = new ArrayList<>();
+        Map<Word, byte[]> lemmas = new HashMap<>();
+
+        for (Word word : words) {
+            if (word == null || word.getWord() == null || word.getPOS() == null || lemmas.containsKey(word))
+                continue;
+
+            lemmas.put(word, word.getWord().getBytes(StandardCharsets.UTF_8));
+            entries.add(word);
+        }
+
+        entries.sort((word1, word2) -> {
+            int result = compareBytes(lemmas.get(word1), lemmas.get(word2));
+            return (result != 0) ? result : word1.getPOS().compareTo(word2.getPOS());
+        });
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(lexiconAddress)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(entries.size());
+
+            int offset = 0;
+
+            for (Word word : entries) {
+                out.writeInt(offset);
+                offset += lemmas.get(word).length;
+            }
+
+            out.writeInt(offset);
+
+            for (Word word : entries)
+                out.writeByte(word.getPOS().ordinal());
+
+            for (Word word : entries)
+                out.writeFloat((word.getMark() != null) ? word.getMark().floatValue() : 0f);
+
+            for (Word word : entries)
+                out.write(lemmas.get(word));
+        }
+    }
+
+    public int size() { return this.size; }
+
+    /**
+     * @return index of the entry or NOT_FOUND
+     */
+    public int find(String lemma, POS pos) {
+        int low = 0;
+        int high = size - 1;
+
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int result = compareEntry(middle, lemma, pos);
+
+            if (result < 0)
+                low = middle + 1;
+            else if (result > 0)
+                high = middle - 1;
+            else
+                return middle;
+        }
+
+        return NOT_FOUND;
+    }
+
+    public boolean contains(String lemma, POS pos) {
+        return find(lemma, pos) != NOT_FOUND;
+    }
+
+    public float getMark(int index) {
+        return buffer.getFloat(marksStart + index * Float.BYTES);
+    }
+
+    public POS getPOS(int index) {
+        return POS.values()[buffer.get(posStart + index)];
+    }
+
+    public String getLemma(int index) {
+        int start = lemmaOffset(index);
+        byte[] bytes = new byte[lemmaOffset(index + 1) - start];
+
+        ByteBuffer lemma = buffer.duplicate();
+        lemma.position(lemmasStart + start);
+        lemma.get(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public Word getWord(int index) {
+        Word word = new Word(getLemma(index), getPOS(index));
+        word.setMark((double) getMark(index));
+
+        return word;
+    }
+
+    private int lemmaOffset(int index) {
+        return buffer.getInt(offsetsStart + index * Integer.BYTES);
+    }
+
+    /**
+     * Compares the entry with the query the same way the entries are sorted:
+     * by unsigned UTF-8 bytes of the lemma, then by POS.
+     */
+    private int compareEntry(int index, String lemma, POS pos) {
+        int position = lemmasStart + lemmaOffset(index);
+        int end = lemmasStart + lemmaOffset(index + 1);
+        int length = lemma.length();
+
+        for (int i = 0; i < length; ++i) {
+            int codePoint = lemma.codePointAt(i);
+
+            if (Character.isSupplementaryCodePoint(codePoint))
+                ++i;
+
+            // encode the query code point on the fly and compare it byte by byte
+            int bytesNumber = (codePoint < 0x80) ? 1 : (codePoint < 0x800) ? 2 : (codePoint < 0x10000) ? 3 : 4;
+
+            for (int j = 0; j < bytesNumber; ++j) {
+                if (position == end)
+                    return -1;
+
+                int entryByte = buffer.get(position++) & 0xFF;
+                int queryByte = utf8Byte(codePoint, bytesNumber, j);
+
+                if (entryByte != queryByte)
+                    return entryByte - queryByte;
+            }
+        }
+
+        if (position != end)
+            return 1;
+
+        return getPOS(index).compareTo(pos);
+    }
+
+    private static int utf8Byte(int codePoint, int bytesNumber, int index) {
+        if (bytesNumber == 1)
+            return codePoint;
+
+        if (index == 0) {
+            int prefix = (bytesNumber == 2) ? 0xC0 : (bytesNumber == 3) ? 0xE0 : 0xF0;
+            return prefix | (codePoint >> (6 * (bytesNumber - 1)));
+        }
+
+        return 0x80 | ((codePoint >> (6 * (bytesNumber - 1 - index))) & 0x3F);
+    }
+
+    private static int compareBytes(byte[] bytes1, byte[] bytes2) {
+        int length = Math.min(bytes1.length, bytes2.length);
+
+        for (int i = 0; i < length; ++i) {
+            int result = (bytes1[i] & 0xFF) - (bytes2[i] & 0xFF);
+
+            if (result != 0)
+                return result;
+        }
+
+        return bytes1.length - bytes2.length;
+    }
+}
@@ -1,54 +1,60 @@
 package dictionary;
 
-import java.io.File;
-import java.io.FileInputStream;
-import java.io.IOException;
-import java.io.InputStream;
+import util.Metrics;
+import util.POS;
+import util.Word;
+
+import java.io.*;
 import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Scanner;
 
 /**
  * Created by artem on 06.03.16.
  */
 public class SentiWordNetConnector {
-    private HashMap<String, ArrayList<Double>> nouns;
-    private HashMap<String, ArrayList<Double>> verbs;
-    private HashMap<String, ArrayList<Double>> adjectives;
-    private HashMap<String, ArrayList<Double>> adverbs;
+    private static final int POSITIVE = 0;
+    private static final int NEUTRAL = 1;
+    private static final int NEGATIVE = 2;
 
-    private Long id;
+    private MarksTable nouns;
+    private MarksTable verbs;
+    private MarksTable adjectives;
+    private MarksTable adverbs;
 
     private int lineSize = 6;
 
+    private int skippedLines;
+
     public SentiWordNetConnector() {
-        nouns = new HashMap<>();
-        verbs = new HashMap<>();
-        adjectives = new HashMap<>();
-        adverbs = new HashMap<>();
+        nouns = new MarksTable();
+        verbs = new MarksTable();
+        adjectives = new MarksTable();
+        adverbs = new MarksTable();
     }
 
     public void loadDictionary(String dictionaryAddress) {
-        try {
-            File file = new File(dictionaryAddress);
+        long start = Metrics.start();
+        skippedLines = 0;
 
-            InputStream in = new FileInputStream(file);
-            Scanner scanner = new Scanner(in);
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new FileInputStream(dictionaryAddress)), 1 << 16)) {
             String line;
 
-            while (scanner.hasNextLine()) {
-                line = scanner.nextLine();
-                parseLine(line);
+            while ((line = reader.readLine()) != null) {
+                if (!parseLine(line))
+                    ++skippedLines;
             }
 
         } catch(IOException e) {
             e.printStackTrace();
         }
+
+        Metrics.stop(Metrics.SENTIWORDNET_LOADING, start);
     }
 
     public void saveDictionary(String fileAddress) {
@@ -61,20 +67,62 @@ public class SentiWordNetConnector {
         }
     }
 
+    /**
+     * @return number of malformed lines skipped by the last loadDictionary
+     */
+    public int getSkippedLines() { return this.skippedLines; }
+
     public ArrayList<Double> getAdjectiveOpinionMarks(String adjective) {
-        return adjectives.get(adjective);
+        return adjectives.getMarks(adjective);
     }
 
     public ArrayList<Double> getAdverbOpinionMarks(String adverb) {
-        return adverbs.get(adverb);
+        return adverbs.getMarks(adverb);
     }
 
     public ArrayList<Double> getNounOpinionMarks(String noun) {
-        return nouns.get(noun);
+        return nouns.getMarks(noun);
     }
 
     public ArrayList<Double> getVerbOpinionMarks(String verb) {
-        return verbs.get(verb);
+        return verbs.getMarks(verb);
+    }
+
+    /**
+     * Copies (positive, neutral, negative) marks of the word into marks[offset..offset + 2].
+     *
+     * @return false and NaN marks if the word is not in the dictionary
+     */
+    public boolean getOpinionMarks(String word, POS pos, float[] marks, int offset) {
+        MarksTable table = getTable(pos);
+
+        if (table == null) {
+            Arrays.fill(marks, offset, offset + 3, Float.NaN);
+            return false;
+        }
+
+        return table.copyMarks(word, marks, offset);
+    }
+
+    /**
+     * Batch lookup: marks of the i-th word are copied into marks[3 * i..3 * i + 2].
+     *
+     * @return number of words found in the dictionary
+     */
+    public int getOpinionMarks(List<Word> words, float[] marks) {
+        if (marks.length < 3 * words.size())
+            throw new IllegalArgumentException("Marks array is too small for " + words.size() + " words");
+
+        int found = 0;
+
+        for (int i = 0; i < words.size(); ++i) {
+            Word word = words.get(i);
+
+            if (getOpinionMarks(word.getWord(), word.getPOS(), marks, 3 * i))
+                ++found;
+        }
+
+        return found;
     }
 
     public void putAdjectiveOpinionMarks(String adjective, ArrayList<Double> opinionMarks) {
@@ -100,14 +148,21 @@ public class SentiWordNetConnector {
         adverbs.clear();
     }
 
+    /**
+     * @return dictionary lines in the SentiWordNet format, entries are numbered from 1 on every call
+     */
     public List<String> toStringLines() {
         List<String> dictionary = new ArrayList<>();
         List<String> nounWords, verbWords, adjectiveWords, adverbsWords;
+        long lastId = 0;
 
-        nounWords = formStringLines(nouns, "n");
-        verbWords = formStringLines(verbs, "v");
-        adjectiveWords = formStringLines(adjectives, "a");
-        adverbsWords = formStringLines(adverbs, "r");
+        nounWords = formStringLines(nouns, "n", lastId);
+        lastId += nounWords.size();
+        verbWords = formStringLines(verbs, "v", lastId);
+        lastId += verbWords.size();
+        adjectiveWords = formStringLines(adjectives, "a", lastId);
+        lastId += adjectiveWords.size();
+        adverbsWords = formStringLines(adverbs, "r", lastId);
 
         dictionary.addAll(nounWords);
         dictionary.addAll(verbWords);
@@ -117,72 +172,111 @@ public class SentiWordNetConnector {
         return dictionary;
     }
 
-    private void parseLine(String line) {
-        if (line.startsWith("#"))
-            return;
+    /**
+     * Parses "POS \t ID \t PosScore \t NegScore \t word#sense word#sense ... [\t Gloss]".
+     *
+     * @return false if the line is malformed
+     */
+    private boolean parseLine(String line) {
+        if (line.startsWith("#") || line.trim().isEmpty())
+            return true;
 
-        String[] values = line.split("\t");
+        int posEnd = line.indexOf('\t');
+        int idEnd = (posEnd < 0) ? -1 : line.indexOf('\t', posEnd + 1);
+        int positiveEnd = (idEnd < 0) ? -1 : line.indexOf('\t', idEnd + 1);
+        int negativeEnd = (positiveEnd < 0) ? -1 : line.indexOf('\t', positiveEnd + 1);
 
-        String pos;
-        String[] words;
-        Double positive, negative, neutral;
-        Long id;
-        ArrayList<Double> opinionMeasure = new ArrayList<>();
-        String gloss;
+        if (negativeEnd < 0)
+            return false;
+
+        int wordsEnd = line.indexOf('\t', negativeEnd + 1);
+        if (wordsEnd < 0)
+            wordsEnd = line.length();
+
+        MarksTable table = getTable(line.substring(0, posEnd));
+        if (table == null)
+            return false;
+
+        float positive, negative;
 
         try {
-            pos = values[0];
+            Long.parseLong(line.substring(posEnd + 1, idEnd));
 
-            id = Long.parseLong(values[1]);
+            positive = Float.parseFloat(line.substring(idEnd + 1, positiveEnd));
+            negative = Float.parseFloat(line.substring(positiveEnd + 1, negativeEnd));
+        } catch (NumberFormatException e) {
+            return false;
+        }
 
-            positive = Double.parseDouble(values[2]);
-            negative = Double.parseDouble(values[3]);
-            neutral = 1 - (positive + negative);
+        float neutral = 1 - (positive + negative);
 
-            words = values[4].split("#[0-9]+");
+        // synonyms are separated by spaces and end with their sense number: "word#1 another_word#2"
+        int start = negativeEnd + 1;
 
-            opinionMeasure.add(positive);
-            opinionMeasure.add(neutral);
-            opinionMeasure.add(negative);
+        while (start < wordsEnd) {
+            int end = line.indexOf(' ', start);
 
-            gloss = values[5];
+            if (end < 0 || end > wordsEnd)
+                end = wordsEnd;
 
-            for (String word : words)
-                updateDictionary(pos, word.trim(), opinionMeasure);
-        } catch(Exception e) {
-            e.printStackTrace();
+            int sense = line.lastIndexOf('#', end - 1);
+            int wordEnd = (sense >= start) ? sense : end;
+
+            if (wordEnd > start)
+                table.putIfAbsent(line.substring(start, wordEnd).trim(), positive, neutral, negative);
+
+            start = end + 1;
         }
+
+        return true;
     }
 
-    private void updateDictionary(String pos, String word, ArrayList<Double> opinion) {
+    private MarksTable getTable(String pos) {
         switch(pos) {
             case "a":
-                adjectives.putIfAbsent(word, opinion);
-                break;
+                return adjectives;
             case "n":
-                nouns.putIfAbsent(word, opinion);
-                break;
+                return nouns;
             case "r":
-                adverbs.putIfAbsent(word, opinion);
-                break;
+                return adverbs;
             case "v":
-                verbs.putIfAbsent(word, opinion);
-                break;
+                return verbs;
+            default:
+                return null;
         }
     }
 
-    private List<String> formStringLines(HashMap<String, ArrayList<Double>> dictionary, String dictionaryType) {
+    private MarksTable getTable(POS pos) {
+        switch(pos) {
+            case ADJECTIVE:
+                return adjectives;
+            case NOUN:
+                return nouns;
+            case ADVERB:
+                return adverbs;
+            case VERB:
+                return verbs;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * @param lastId id of the line before the first entry of the dictionary
+     */
+    private List<String> formStringLines(MarksTable dictionary, String dictionaryType, long lastId) {
         List<String> lines = new ArrayList<>();
         String[] line;
 
-        for (String key : dictionary.keySet()) {
+        for (int entry = 0; entry < dictionary.size(); ++entry) {
             line = new String[lineSize];
 
             line[0] = dictionaryType;
-            line[1] = (++id).toString();
-            line[2] = dictionary.get(key).get(0).toString();
-            line[3] = dictionary.get(key).get(2).toString();
-            line[4] = key;
+            line[1] = Long.toString(lastId + entry + 1);
+            line[2] = Float.toString(dictionary.getMark(entry, POSITIVE));
+            line[3] = Float.toString(dictionary.getMark(entry, NEGATIVE));
+            line[4] = dictionary.getWord(entry) + "#1";
+            line[5] = "";
 
             lines.add(formLine(line));
         }
@@ -193,13 +287,156 @@ public class SentiWordNetConnector {
     private String formLine (String[] values) {
         StringBuilder line = new StringBuilder();
 
-        for (String value : values) {
-            line.append(value);
-            line.append("\t");
-        }
+        for (int i = 0; i < values.length; ++i) {
+            if (i > 0)
+                line.append("\t");
 
-        line.append("\n");
+            line.append(values[i]);
+        }
 
         return line.toString();
     }
+
+    /**
+     * Open-addressing table from words to (positive, neutral, negative) marks.
+     * Entries are numbered in insertion order, their marks are stored in one float array.
+     */
+    private static class MarksTable {
+        private static final int INITIAL_CAPACITY = 1 << 10;
+
+        private String[] words;
+        private float[] marks;
+
+        // slot -> entry + 1, 0 marks an empty slot
+        private int[] slots;
+
+        private int size;
+
+        MarksTable() {
+            clear();
+        }
+
+        int size() { return this.size; }
+
+        String getWord(int entry) { return words[entry]; }
+
+        float getMark(int entry, int mark) { return marks[3 * entry + mark]; }
+
+        void clear() {
+            words = new String[INITIAL_CAPACITY / 2];
+            marks = new float[3 * INITIAL_CAPACITY / 2];
+            slots = new int[INITIAL_CAPACITY];
+            size = 0;
+        }
+
+        boolean copyMarks(String word, float[] destination, int offset) {
+            int entry = find(word);
+
+            if (entry < 0) {
+                Arrays.fill(destination, offset, offset + 3, Float.NaN);
+                return false;
+            }
+
+            System.arraycopy(marks, 3 * entry, destination, offset, 3);
+            return true;
+        }
+
+        ArrayList<Double> getMarks(String word) {
+            int entry = find(word);
+
+            if (entry < 0)
+                return null;
+
+            ArrayList<Double> opinionMarks = new ArrayList<>(3);
+            opinionMarks.add((double) marks[3 * entry + POSITIVE]);
+            opinionMarks.add((double) marks[3 * entry + NEUTRAL]);
+            opinionMarks.add((double) marks[3 * entry + NEGATIVE]);
+
+            return opinionMarks;
+        }
+
+        void putIfAbsent(String word, float positive, float neutral, float negative) {
+            checkWord(word);
+
+            if (find(word) < 0)
+                add(word, positive, neutral, negative);
+        }
+
+        void put(String word, ArrayList<Double> opinionMarks) {
+            checkWord(word);
+
+            if (opinionMarks == null || opinionMarks.size() < 3)
+                throw new IllegalArgumentException("Opinion marks of " + word + " must be (positive, neutral, negative)");
+
+            float positive = opinionMarks.get(POSITIVE).floatValue();
+            float neutral = opinionMarks.get(NEUTRAL).floatValue();
+            float negative = opinionMarks.get(NEGATIVE).floatValue();
+
+            int entry = find(word);
+
+            if (entry < 0) {
+                add(word, positive, neutral, negative);
+            } else {
+                marks[3 * entry + POSITIVE] = positive;
+                marks[3 * entry + NEUTRAL] = neutral;
+                marks[3 * entry + NEGATIVE] = negative;
+            }
+        }
+
+        private static void checkWord(String word) {
+            if (word == null || word.isEmpty())
+                throw new IllegalArgumentException("Dictionary word must not be null or empty");
+        }
+
+        private int find(String word) {
+            int mask = slots.length - 1;
+
+            for (int slot = hash(word) & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+                int entry = slots[slot] - 1;
+
+                if (words[entry].equals(word))
+                    return entry;
+            }
+
+            return -1;
+        }
+
+        private void add(String word, float positive, float neutral, float negative) {
+            if (size == words.length)
+                grow();
+
+            words[size] = word;
+            marks[3 * size + POSITIVE] = positive;
+            marks[3 * size + NEUTRAL] = neutral;
+            marks[3 * size + NEGATIVE] = negative;
+
+            insertSlot(size);
+            ++size;
+        }
+
+        private void insertSlot(int entry) {
+            int mask = slots.length - 1;
+            int slot = hash(words[entry]) & mask;
+
+            while (slots[slot] != 0)
+                slot = (slot + 1) & mask;
+
+            slots[slot] = entry + 1;
+        }
+
+        // the table is kept at most half full
+        private void grow() {
+            words = Arrays.copyOf(words, 2 * words.length);
+            marks = Arrays.copyOf(marks, 2 * marks.length);
+            slots = new int[2 * slots.length];
+
+            for (int entry = 0; entry < size; ++entry)
+                insertSlot(entry);
+        }
+
+        private static int hash(String word) {
+            int h = word.hashCode();
+            return h ^ (h >>> 16);
+        }
+    }
 }
@@ -2,13 +2,15 @@ package dictionary;
 
 import edu.mit.jwi.*;
 import edu.mit.jwi.Dictionary;
+import edu.mit.jwi.data.ILoadPolicy;
 import edu.mit.jwi.item.*;
-import org.omg.PortableServer.LIFESPAN_POLICY_ID;
+import util.LruCache;
+import util.Metrics;
+import util.Utils;
 import util.Word;
 
+import java.io.File;
 import java.io.IOException;
-import java.net.MalformedURLException;
-import java.net.URL;
 import java.util.*;
 import java.util.stream.Collectors;
 
@@ -16,23 +18,39 @@ import java.util.stream.Collectors;
  * Created by artem on 06.03.16.
  */
 public class WordNetConnector {
-    private final String WNAddress = "/home/artem/Documents/Additional/WordNet-3.0/dict";
-
     private IDictionary dictionary;
 
+    private final LruCache<Word, List<String>> peripheryCache;
+
+    /**
+     * Opens the file-backed WordNet at the "wordnet.dict" system property
+     * or at Utils.wordNetAddress if the property is not set.
+     */
     public WordNetConnector() {
-        URL url = null;
+        this(System.getProperty(Utils.WORDNET_ADDRESS_PROPERTY, Utils.wordNetAddress));
+    }
 
-        try {
-            url = new URL("file", null, WNAddress);
-        } catch (MalformedURLException e) {
-            e.printStackTrace();
-        }
+    public WordNetConnector(String wordNetAddress) {
+        this(wordNetAddress, false, Utils.PERIPHERY_CACHE_SIZE);
+    }
+
+    /**
+     * @param inMemory load the whole WordNet into memory on open instead of reading the files on every lookup
+     * @param cacheSize maximum number of words whose periphery is cached
+     */
+    public WordNetConnector(String wordNetAddress, boolean inMemory, int cacheSize) {
+        if (cacheSize < 0)
+            throw new IllegalArgumentException("Cache size cannot be negative: " + cacheSize);
 
-        if (url == null) return;
+        peripheryCache = new LruCache<>(cacheSize);
+
+        File file = new File(wordNetAddress);
 
         // construct the dictionary object and open it
-        dictionary = new edu.mit.jwi.Dictionary(url);
+        if (inMemory)
+            dictionary = new RAMDictionary(file, ILoadPolicy.IMMEDIATE_LOAD);
+        else
+            dictionary = new Dictionary(file);
 
         try {
             dictionary.open();
@@ -41,34 +59,79 @@ public class WordNetConnector {
         }
     }
 
+    /**
+     * @return sorted lemmas of the word's first sense, its synonyms and the words of related synsets,
+     * empty if WordNet does not know the word
+     */
     public List<String> getPeriphery(Word word) {
+        Word key = new Word(word.getWord(), word.getPOS());
+        List<String> periphery = peripheryCache.get(key);
+
+        if (periphery == null) {
+            Metrics.increment(Metrics.PERIPHERY_CACHE_MISSES);
+
+            long start = Metrics.start();
+            periphery = findPeriphery(word);
+            Metrics.stop(Metrics.PERIPHERY_LOOKUP, start);
+
+            peripheryCache.put(key, periphery);
+        } else {
+            Metrics.increment(Metrics.PERIPHERY_CACHE_HITS);
+        }
+
+        return new ArrayList<>(periphery);
+    }
+
+    /**
+     * Looks the words up in parallel.
+     *
+     * @return periphery of every word in the iteration order of the collection
+     */
+    public Map<Word, List<String>> getPeriphery(Collection<Word> words) {
+        return words.parallelStream()
+                .distinct()
+                .collect(Collectors.toMap(word -> word, this::getPeriphery,
+                        (first, second) -> first, LinkedHashMap::new));
+    }
+
+    public void clearCache() {
+        peripheryCache.clear();
+    }
+
+    public int getCacheSize() {
+        return peripheryCache.size();
+    }
+
+    public void close() {
+        dictionary.close();
+    }
+
+    private List<String> findPeriphery(Word word) {
         POS pos = partOfSpeechConverter(word);
-        IWord iWord;
-        List<IWord> words;
         Set<String> periphery = new TreeSet<>();
-        List<ISynsetID> synsetIDs;
 
-        try {
-            IIndexWord idxWord = dictionary.getIndexWord(word.getWord(), pos);
-            IWordID wordID = idxWord.getWordIDs().get(0);
+        if (pos == null)
+            return Collections.emptyList();
 
-            iWord = dictionary.getWord(wordID);
-            periphery.add(iWord.getLemma());
+        IIndexWord idxWord = dictionary.getIndexWord(word.getWord(), pos);
 
-            words = iWord.getSynset().getWords();
-            periphery.addAll(words.stream().map(IWord::getLemma).collect(Collectors.toList()));
+        if (idxWord == null || idxWord.getWordIDs().isEmpty())
+            return Collections.emptyList();
 
-            synsetIDs = iWord.getSynset().getRelatedSynsets();
+        IWord iWord = dictionary.getWord(idxWord.getWordIDs().get(0));
+        ISynset synset = iWord.getSynset();
 
-            for (ISynsetID synsetID : synsetIDs) {
-                words = dictionary.getSynset(synsetID).getWords();
-                periphery.addAll(words.stream().map(IWord::getLemma).collect(Collectors.toList()));
-            }
-        } catch (Exception e) {
-            e.printStackTrace();
+        periphery.add(iWord.getLemma());
+
+        for (IWord synonym : synset.getWords())
+            periphery.add(synonym.getLemma());
+
+        for (ISynsetID synsetID : synset.getRelatedSynsets()) {
+            for (IWord related : dictionary.getSynset(synsetID).getWords())
+                periphery.add(related.getLemma());
         }
 
-        return new ArrayList<>(periphery);
+        return Collections.unmodifiableList(new ArrayList<>(periphery));
     }
 
     private POS partOfSpeechConverter(Word word) {
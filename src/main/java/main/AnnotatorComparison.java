@@ -0,0 +1,167 @@
+package main;
+
+import classifiers.CrossValidation;
+import classifiers.NaiveBayes;
+import classifiers.NaiveBayesType;
+import corpus.*;
+import util.Utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.*;
+
+/**
+ * Compares CoreNLP with the rule-based annotator on the GMO corpora: annotation
+ * throughput and cross-validation accuracy of the classifier built on each.
+ * For the accuracy the lemma table of every fold is mined from the CoreNLP annotations
+ * of its training documents only; the table mined from the whole corpora is used for
+ * the throughput and saved to Utils.lemmaTableAddress.
+ */
+public class AnnotatorComparison {
+    private static final int FOLDS_NUMBER = 5;
+
+    public static void main(String[] args) {
+        List<String> positiveTexts = readTexts(Utils.proCorpusProcessedAddress);
+        List<String> negativeTexts = readTexts(Utils.antiCorpusProcessedAddress);
+
+        List<String> texts = new ArrayList<>(positiveTexts);
+        texts.addAll(negativeTexts);
+
+        AnnotationCache cache = new AnnotationCache(Utils.annotationCacheAddress, Utils.ANNOTATION_CACHE_SIZE);
+
+        // the pipeline construction and the first annotation load the models, they are not timed
+        PipelineProvider.warmUp();
+        Annotator coreNLP = new CoreNLPAnnotator();
+        coreNLP.annotate(texts.get(0));
+
+        Map<String, List<List<Token>>> annotations = new HashMap<>();
+
+        long start = System.nanoTime();
+
+        for (String text : texts) {
+            List<List<Token>> sentences = coreNLP.annotate(text);
+
+            annotations.put(text, sentences);
+            cache.put(coreNLP.getName(), text, sentences);
+        }
+
+        long coreNLPTime = System.nanoTime() - start;
+
+        RuleBasedAnnotator rules = buildRules(texts, annotations);
+        rules.save(Utils.lemmaTableAddress);
+        rules.annotate(texts.get(0));
+
+        start = System.nanoTime();
+
+        for (String text : texts) {
+            rules.annotate(text);
+        }
+
+        long rulesTime = System.nanoTime() - start;
+
+        System.out.println(String.format(Locale.US, "Lemma table: %d word forms", rules.size()));
+        report("CoreNLP", texts.size(), coreNLPTime);
+        report("Rule-based", texts.size(), rulesTime);
+        System.out.println(String.format(Locale.US, "Speedup: %.1fx", (double) coreNLPTime / Math.max(rulesTime, 1)));
+
+        Corpus coreNLPCorpus = loadCorpus(coreNLP, cache);
+        Map<NaiveBayesType, Double> coreNLPAccuracies = new EnumMap<>(NaiveBayesType.class);
+        Map<NaiveBayesType, Double> rulesAccuracies = new EnumMap<>(NaiveBayesType.class);
+
+        for (int fold = 0; fold < FOLDS_NUMBER; ++fold) {
+            List<String> trainingTexts = new ArrayList<>();
+            addTrainingTexts(positiveTexts, fold, trainingTexts);
+            addTrainingTexts(negativeTexts, fold, trainingTexts);
+
+            Corpus rulesCorpus = loadCorpus(buildRules(trainingTexts, annotations), null);
+
+            evaluate(coreNLPCorpus, fold, coreNLPAccuracies);
+            evaluate(rulesCorpus, fold, rulesAccuracies);
+        }
+
+        for (NaiveBayesType type : NaiveBayesType.values()) {
+            double coreNLPAccuracy = coreNLPAccuracies.get(type) / FOLDS_NUMBER;
+            double rulesAccuracy = rulesAccuracies.get(type) / FOLDS_NUMBER;
+
+            System.out.println(String.format(Locale.US, "%s accuracy: CoreNLP %.4f, rule-based %.4f, delta %+.4f",
+                    type, coreNLPAccuracy, rulesAccuracy, rulesAccuracy - coreNLPAccuracy));
+        }
+    }
+
+    private static RuleBasedAnnotator buildRules(List<String> texts, Map<String, List<List<Token>>> annotations) {
+        RuleBasedAnnotator.Builder builder = new RuleBasedAnnotator.Builder();
+
+        for (String text : texts) {
+            builder.add(annotations.get(text));
+        }
+
+        return builder.build();
+    }
+
+    private static void addTrainingTexts(List<String> texts, int fold, List<String> trainingTexts) {
+        for (int i = 0; i < texts.size(); ++i) {
+            if (!CrossValidation.isInTestingFold(i, texts.size(), fold, FOLDS_NUMBER)) {
+                trainingTexts.add(texts.get(i));
+            }
+        }
+    }
+
+    private static Corpus loadCorpus(Annotator annotator, AnnotationCache cache) {
+        Corpus corpus = new Corpus(Runtime.getRuntime().availableProcessors());
+        corpus.setAnnotator(annotator);
+        corpus.setAnnotationCache(cache);
+        corpus.setFilter(SpecialWordFilter.get(SpecialWordType.STOP_WORD));
+
+        corpus.loadCorpus(Utils.proCorpusProcessedAddress, Utils.antiCorpusProcessedAddress);
+
+        return corpus;
+    }
+
+    /**
+     * Trains on all documents of the corpus but the fold and adds the accuracy of every type on the fold.
+     */
+    private static void evaluate(Corpus corpus, int fold, Map<NaiveBayesType, Double> accuracies) {
+        List<Document> positiveTestingSet = new ArrayList<>();
+        List<Document> negativeTestingSet = new ArrayList<>();
+        NaiveBayes classifier = new NaiveBayes();
+
+        for (List<Document> documents : Arrays.asList(corpus.getPositiveDocuments(), corpus.getNegativeDocuments())) {
+            for (int i = 0; i < documents.size(); ++i) {
+                Document document = documents.get(i);
+
+                if (CrossValidation.isInTestingFold(i, documents.size(), fold, FOLDS_NUMBER)) {
+                    (document.getOpinion() == DocumentOpinion.POSITIVE ? positiveTestingSet : negativeTestingSet)
+                            .add(document);
+                } else {
+                    classifier.partialFit(document, document.getOpinion());
+                }
+            }
+        }
+
+        for (NaiveBayesType type : NaiveBayesType.values()) {
+            double accuracy = classifier.test(positiveTestingSet, negativeTestingSet, type)
+                    .getConfusionMatrix().getAccuracy();
+
+            accuracies.merge(type, accuracy, Double::sum);
+        }
+    }
+
+    private static void report(String annotator, int documentsNumber, long elapsedNanos) {
+        double seconds = elapsedNanos / 1e9;
+
+        System.out.println(String.format(Locale.US, "%s: %d documents in %.2f s (%.1f docs/sec)",
+                annotator, documentsNumber, seconds, documentsNumber / Math.max(seconds, 1e-9)));
+    }
+
+    private static List<String> readTexts(String fileAddress) {
+        List<String> texts = new ArrayList<>();
+
+        try (CorpusReader reader = new CorpusReader(new File(fileAddress))) {
+            reader.forEachRemaining(texts::add);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+
+        return texts;
+    }
+}
@@ -0,0 +1,156 @@
+package main;
+
+import classifiers.*;
+import corpus.*;
+import util.Utils;
+import util.Word;
+
+import java.util.*;
+
+/**
+ * Model size, classification latency and accuracy of NaiveBayes on the GMO corpora
+ * restricted to the best features by each FeatureMeasure, next to the full vocabulary.
+ * Features are selected from the training documents of every fold only, the folds
+ * are those of CrossValidation.
+ */
+public class FeatureSelectionReport {
+    private static final int FOLDS_NUMBER = 5;
+
+    private static final int[] FEATURES_NUMBERS = {100, 500, 1000, 5000};
+
+    // testing documents are classified this many times to time them
+    private static final int LATENCY_ROUNDS = 20;
+
+    public static void main(String[] args) {
+        boolean patternFeatures = args.length > 0 && args[0].equals("--patterns");
+
+        Corpus corpus = new Corpus(Runtime.getRuntime().availableProcessors());
+        corpus.setAnnotationCache(new AnnotationCache(Utils.annotationCacheAddress, Utils.ANNOTATION_CACHE_SIZE));
+        corpus.setFilter(SpecialWordFilter.get(SpecialWordType.STOP_WORD));
+        corpus.setPatternFeatures(patternFeatures);
+
+        corpus.loadCorpus(Utils.proCorpusProcessedAddress, Utils.antiCorpusProcessedAddress);
+
+        // the first runs only warm up the JIT of both paths, so the latencies of all runs are comparable
+        evaluate(corpus, null, 0);
+        evaluate(corpus, new FeatureSelector(FeatureMeasure.CHI_SQUARE), FEATURES_NUMBERS[0]);
+        Result all = evaluate(corpus, null, 0);
+
+        System.out.println(String.format(Locale.US, "%-34s %8s %10s %10s %9s %9s %9s",
+                "selection", "features", "bytes", "us/doc", "accuracy", "auc", "binary"));
+        report("all", all, all);
+
+        for (FeatureMeasure measure : FeatureMeasure.values()) {
+            FeatureSelector selector = new FeatureSelector(measure);
+
+            for (int featuresNumber : FEATURES_NUMBERS) {
+                report(measure + " " + featuresNumber, evaluate(corpus, selector, featuresNumber), all);
+            }
+        }
+    }
+
+    /**
+     * @param selector null for the full vocabulary
+     */
+    private static Result evaluate(Corpus corpus, FeatureSelector selector, int featuresNumber) {
+        Result result = new Result();
+
+        for (int fold = 0; fold < FOLDS_NUMBER; ++fold) {
+            List<Document> positiveTrainingSet = new ArrayList<>();
+            List<Document> negativeTrainingSet = new ArrayList<>();
+            List<Document> positiveTestingSet = new ArrayList<>();
+            List<Document> negativeTestingSet = new ArrayList<>();
+
+            split(corpus.getPositiveDocuments(), fold, positiveTrainingSet, positiveTestingSet);
+            split(corpus.getNegativeDocuments(), fold, negativeTrainingSet, negativeTestingSet);
+
+            List<Document> trainingSet = new ArrayList<>(positiveTrainingSet);
+            trainingSet.addAll(negativeTrainingSet);
+
+            NaiveBayes classifier = new NaiveBayes();
+            classifier.setPatternFeatures(corpus.hasPatternFeatures());
+
+            if (selector != null) {
+                List<Word> words = corpus.extractWords(trainingSet);
+
+                classifier.selectFeatures(selector.selectTop(words, positiveTrainingSet.size(),
+                        negativeTrainingSet.size(), featuresNumber));
+            }
+
+            for (Document document : trainingSet) {
+                classifier.partialFit(document, document.getOpinion());
+            }
+
+            List<Document> testingSet = new ArrayList<>(positiveTestingSet);
+            testingSet.addAll(negativeTestingSet);
+
+            long start = System.nanoTime();
+
+            for (int round = 0; round < LATENCY_ROUNDS; ++round) {
+                for (Document document : testingSet) {
+                    classifier.classify(document, NaiveBayesType.MULTINOMIAL);
+                }
+            }
+
+            result.nanos += System.nanoTime() - start;
+            result.classified += (long) LATENCY_ROUNDS * testingSet.size();
+            result.features += classifier.getFeaturesNumber();
+            result.bytes += classifier.getModelBytes();
+
+            EvaluationResult multinomial = classifier.test(positiveTestingSet, negativeTestingSet,
+                    NaiveBayesType.MULTINOMIAL);
+
+            result.multinomial.merge(multinomial.getConfusionMatrix());
+            result.auc += multinomial.getAuc();
+            result.binary.merge(classifier.test(positiveTestingSet, negativeTestingSet,
+                    NaiveBayesType.BINARY).getConfusionMatrix());
+        }
+
+        return result;
+    }
+
+    private static void split(List<Document> documents, int fold, List<Document> trainingSet,
+                              List<Document> testingSet) {
+        for (int i = 0; i < documents.size(); ++i) {
+            if (CrossValidation.isInTestingFold(i, documents.size(), fold, FOLDS_NUMBER)) {
+                testingSet.add(documents.get(i));
+            } else {
+                trainingSet.add(documents.get(i));
+            }
+        }
+    }
+
+    private static void report(String features, Result result, Result all) {
+        System.out.println(String.format(Locale.US, "%-34s %8d %10d %10.1f %9.4f %9.4f %9.4f",
+                features, result.features / FOLDS_NUMBER, result.bytes / FOLDS_NUMBER, result.getMicrosPerDocument(),
+                result.multinomial.getAccuracy(), result.auc / FOLDS_NUMBER, result.binary.getAccuracy()));
+
+        if (result == all)
+            return;
+
+        System.out.println(String.format(Locale.US, "%-34s %8s %+9.1f%% %+9.1f%% %+9.4f %+9.4f %+9.4f", "",
+                "", 100.0 * (result.bytes - all.bytes) / all.bytes,
+                100.0 * (result.getMicrosPerDocument() - all.getMicrosPerDocument()) / all.getMicrosPerDocument(),
+                result.multinomial.getAccuracy() - all.multinomial.getAccuracy(),
+                (result.auc - all.auc) / FOLDS_NUMBER,
+                result.binary.getAccuracy() - all.binary.getAccuracy()));
+    }
+
+    /**
+     * Sums over the folds.
+     */
+    private static class Result {
+        long features;
+        long bytes;
+        long nanos;
+        long classified;
+        double auc;
+
+        final ConfusionMatrix multinomial = new ConfusionMatrix();
+        final ConfusionMatrix binary = new ConfusionMatrix();
+
+        double getMicrosPerDocument() {
+            return (classified > 0) ? nanos / 1e3 / classified : 0;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package main;
+
+import classifiers.CrossValidation;
+import classifiers.CrossValidationResult;
+import classifiers.HashingVectorizer;
+import classifiers.NaiveBayesType;
+import corpus.*;
+import util.Utils;
+
+import java.util.Locale;
+
+/**
+ * Cross-validation accuracy of HashedNaiveBayes on the GMO corpora for
+ * growing hash table sizes, next to the vocabulary-based classifier.
+ * Run with --patterns to add the pattern features to both.
+ */
+public class HashingSizeReport {
+    private static final int FOLDS_NUMBER = 5;
+
+    private static final int MIN_BUCKETS_BITS = 8;
+    private static final int MAX_BUCKETS_BITS = 20;
+
+    public static void main(String[] args) {
+        boolean patternFeatures = args.length > 0 && args[0].equals("--patterns");
+
+        Corpus corpus = new Corpus(Runtime.getRuntime().availableProcessors());
+        corpus.setAnnotationCache(new AnnotationCache(Utils.annotationCacheAddress, Utils.ANNOTATION_CACHE_SIZE));
+        corpus.setFilter(SpecialWordFilter.get(SpecialWordType.STOP_WORD));
+        corpus.setPatternFeatures(patternFeatures);
+
+        corpus.loadCorpus(Utils.proCorpusProcessedAddress, Utils.antiCorpusProcessedAddress);
+
+        CrossValidation crossValidation = new CrossValidation(FOLDS_NUMBER);
+
+        System.out.println(String.format(Locale.US, "Vocabulary: %d terms", corpus.getVocabulary().size()));
+        report("vocabulary", crossValidation.run(corpus));
+
+        for (int bits = MIN_BUCKETS_BITS; bits <= MAX_BUCKETS_BITS; bits += 2) {
+            HashingVectorizer vectorizer = new HashingVectorizer(1 << bits, patternFeatures, SpecialWordFilter.none());
+            report(String.valueOf(1 << bits), crossValidation.run(corpus, vectorizer));
+        }
+    }
+
+    private static void report(String tableSize, CrossValidationResult result) {
+        StringBuilder line = new StringBuilder(String.format(Locale.US, "%10s", tableSize));
+
+        for (NaiveBayesType type : NaiveBayesType.values()) {
+            line.append(String.format(Locale.US, "  %s %.4f", type, result.getMeanAccuracy(type)));
+        }
+
+        System.out.println(line);
+    }
+}
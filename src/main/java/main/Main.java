@@ -1,7 +1,11 @@
 package main;
 
-import classifiers.NaiveBayes;
+import classifiers.CrossValidation;
+import corpus.AnnotationCache;
 import corpus.Corpus;
+import corpus.SpecialWordFilter;
+import corpus.SpecialWordType;
+import util.Metrics;
 import util.Utils;
 import util.Word;
 
@@ -15,16 +19,16 @@ public class Main {
     private static List<Word> words;
 
     public static void main(String[] args) {
-        Corpus corpus = new Corpus();
+        Corpus corpus = new Corpus(Runtime.getRuntime().availableProcessors());
+        corpus.setAnnotationCache(new AnnotationCache(Utils.annotationCacheAddress, Utils.ANNOTATION_CACHE_SIZE));
+        corpus.setFilter(SpecialWordFilter.get(SpecialWordType.STOP_WORD));
 
         corpus.loadCorpus(Utils.proCorpusAddress, Utils.antiCorpusAddress);
 
-        NaiveBayes nb;
+        CrossValidation crossValidation = new CrossValidation(5);
+        System.out.println(crossValidation.run(corpus));
 
-        for (int i = 0; i < 5; ++i) {
-            System.out.println("\nCross validation. Classifier #" + i + '\n');
-            nb = new NaiveBayes();
-            nb.learn(corpus, i);
-        }
+        if (Metrics.isEnabled())
+            System.out.println(Metrics.toJson());
     }
 }
@@ -0,0 +1,145 @@
+package util;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from long keys to int values without boxing.
+ * Used for counting and numbering packed pairs of vocabulary ids.
+ * Not safe for concurrent modification.
+ */
+public class LongIntMap {
+    private static final int INITIAL_CAPACITY = 16;
+
+    // the table is kept at most half full
+    private long[] keys;
+    private int[] values;
+    private boolean[] used;
+
+    private int size;
+
+    public LongIntMap() {
+        this(INITIAL_CAPACITY);
+    }
+
+    public LongIntMap(int expectedSize) {
+        int capacity = INITIAL_CAPACITY;
+
+        while (capacity < 2 * expectedSize)
+            capacity <<= 1;
+
+        keys = new long[capacity];
+        values = new int[capacity];
+        used = new boolean[capacity];
+    }
+
+    public int size() { return this.size; }
+
+    public boolean isEmpty() { return this.size == 0; }
+
+    public boolean containsKey(long key) {
+        return used[slot(key)];
+    }
+
+    /**
+     * @return value of the key or defaultValue if the map does not contain it
+     */
+    public int get(long key, int defaultValue) {
+        int slot = slot(key);
+
+        return used[slot] ? values[slot] : defaultValue;
+    }
+
+    public void put(long key, int value) {
+        int slot = slot(key);
+
+        if (used[slot]) {
+            values[slot] = value;
+        } else {
+            insert(slot, key, value);
+        }
+    }
+
+    /**
+     * Adds delta to the value of the key, absent keys count as 0.
+     *
+     * @return the new value
+     */
+    public int add(long key, int delta) {
+        int slot = slot(key);
+
+        if (used[slot]) {
+            values[slot] += delta;
+            return values[slot];
+        }
+
+        insert(slot, key, delta);
+        return delta;
+    }
+
+    /**
+     * @return keys in ascending order
+     */
+    public long[] sortedKeys() {
+        long[] result = new long[size];
+        int j = 0;
+
+        for (int i = 0; i < keys.length; ++i) {
+            if (used[i])
+                result[j++] = keys[i];
+        }
+
+        Arrays.sort(result);
+
+        return result;
+    }
+
+    public void clear() {
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+    private void insert(int slot, long key, int value) {
+        keys[slot] = key;
+        values[slot] = value;
+        used[slot] = true;
+
+        if (++size > keys.length / 2)
+            grow();
+    }
+
+    private int slot(long key) {
+        int mask = keys.length - 1;
+        int slot = hash(key) & mask;
+
+        while (used[slot] && keys[slot] != key)
+            slot = (slot + 1) & mask;
+
+        return slot;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        boolean[] oldUsed = used;
+
+        keys = new long[2 * oldKeys.length];
+        values = new int[2 * oldKeys.length];
+        used = new boolean[2 * oldKeys.length];
+
+        for (int i = 0; i < oldKeys.length; ++i) {
+            if (oldUsed[i]) {
+                int slot = slot(oldKeys[i]);
+
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+                used[slot] = true;
+            }
+        }
+    }
+
+    // packed id pairs differ mostly in the low bits of both halves, so the halves are mixed
+    private static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,95 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded least recently used cache split into segments by key hash, each an
+ * access-ordered LinkedHashMap behind its own lock. Concurrent lookups of keys
+ * in different segments do not wait for each other; eviction is LRU within a
+ * segment. Safe for concurrent use.
+ */
+public class LruCache<K, V> {
+    private static final int MAX_SEGMENTS = 16;
+
+    private final List<Segment<K, V>> segments;
+
+    /**
+     * @param capacity maximum number of entries, split evenly between the segments
+     */
+    public LruCache(int capacity) {
+        if (capacity < 0)
+            throw new IllegalArgumentException("Cache capacity cannot be negative: " + capacity);
+
+        int segmentsNumber = Math.max(1, Math.min(MAX_SEGMENTS, capacity));
+        segments = new ArrayList<>(segmentsNumber);
+
+        for (int i = 0; i < segmentsNumber; ++i) {
+            segments.add(new Segment<>(capacity / segmentsNumber + ((i < capacity % segmentsNumber) ? 1 : 0)));
+        }
+    }
+
+    /**
+     * @return cached value or null, a found entry becomes the most recently used of its segment
+     */
+    public V get(K key) {
+        Segment<K, V> segment = segmentOf(key);
+
+        synchronized (segment) {
+            return segment.get(key);
+        }
+    }
+
+    public void put(K key, V value) {
+        Segment<K, V> segment = segmentOf(key);
+
+        synchronized (segment) {
+            segment.put(key, value);
+        }
+    }
+
+    public void clear() {
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    public int size() {
+        int size = 0;
+
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+
+        return size;
+    }
+
+    private Segment<K, V> segmentOf(K key) {
+        int hash = key.hashCode();
+
+        return segments.get(Math.floorMod(hash ^ (hash >>> 16), segments.size()));
+    }
+
+    private static class Segment<K, V> extends LinkedHashMap<K, V> {
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true);
+
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            return size() > capacity;
+        }
+    }
+}
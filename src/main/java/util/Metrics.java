@@ -0,0 +1,296 @@
+package util;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Process-wide stage latencies, counters and gauges of the corpus, classifiers
+ * and dictionary packages. Disabled by default, then every call is a single
+ * volatile read; enable with setEnabled or -Dmetrics=true.
+ *
+ * Stages are timed as
+ *
+ *   long start = Metrics.start();
+ *   ...
+ *   Metrics.stop(Metrics.ANNOTATION, start);
+ *
+ * and exported as a JSON snapshot or a log line, also periodically by startReporting.
+ */
+public final class Metrics {
+    public static final String ENABLED_PROPERTY = "metrics";
+
+    // stage latencies
+    public static final String PIPELINE_CONSTRUCTION = "corpus.pipelineConstruction";
+    public static final String ANNOTATION = "corpus.annotation";
+    public static final String DOCUMENT_PARSING = "corpus.documentParsing";
+    public static final String CORPUS_LOADING = "corpus.loading";
+    public static final String INDEXING = "corpus.indexing";
+    public static final String WORDS_EXTRACTION = "corpus.wordsExtraction";
+    public static final String SPECIAL_WORDS_REMOVAL = "corpus.specialWordsRemoval";
+    public static final String LEARNING = "classifier.learning";
+    public static final String CLASSIFICATION = "classifier.classification";
+    public static final String DICTIONARY_LOADING = "dictionary.loading";
+    public static final String SENTIWORDNET_LOADING = "dictionary.sentiWordNetLoading";
+    public static final String PERIPHERY_LOOKUP = "dictionary.peripheryLookup";
+
+    // counters
+    public static final String DOCUMENTS = "corpus.documents";
+    public static final String TOKENS = "corpus.tokens";
+    public static final String ANNOTATION_CACHE_HITS = "corpus.annotationCacheHits";
+    public static final String ANNOTATION_CACHE_MISSES = "corpus.annotationCacheMisses";
+    public static final String CLASSIFIED_DOCUMENTS = "classifier.classifiedDocuments";
+    public static final String UNKNOWN_TERMS = "classifier.unknownTerms";
+    public static final String PERIPHERY_CACHE_HITS = "dictionary.peripheryCacheHits";
+    public static final String PERIPHERY_CACHE_MISSES = "dictionary.peripheryCacheMisses";
+
+    // gauges
+    public static final String VOCABULARY_SIZE = "classifier.vocabularySize";
+    public static final String MODEL_BYTES = "classifier.modelBytes";
+
+    private static volatile boolean enabled = Boolean.getBoolean(ENABLED_PROPERTY);
+
+    private static final ConcurrentMap<String, Histogram> histograms = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+    private static final ConcurrentMap<String, LongSupplier> gauges = new ConcurrentHashMap<>();
+
+    private static ScheduledExecutorService reporter;
+
+    private Metrics() {
+    }
+
+    public static void setEnabled(boolean isEnabled) { enabled = isEnabled; }
+
+    public static boolean isEnabled() { return enabled; }
+
+    /**
+     * @return start time of a stage for stop, 0 when disabled
+     */
+    public static long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Records the latency of a stage started by start, stages started while disabled are ignored.
+     */
+    public static void stop(String stage, long start) {
+        if (start != 0 && enabled)
+            histogram(stage).record(System.nanoTime() - start);
+    }
+
+    public static void increment(String counter) {
+        add(counter, 1);
+    }
+
+    public static void add(String counter, long delta) {
+        if (enabled)
+            counters.computeIfAbsent(counter, name -> new LongAdder()).add(delta);
+    }
+
+    /**
+     * Sets the value source of a gauge, read at every snapshot. A later call replaces it.
+     */
+    public static void gauge(String gauge, LongSupplier value) {
+        if (enabled)
+            gauges.put(gauge, value);
+    }
+
+    public static Histogram histogram(String stage) {
+        return histograms.computeIfAbsent(stage, name -> new Histogram());
+    }
+
+    public static long getCount(String counter) {
+        LongAdder adder = counters.get(counter);
+
+        return (adder != null) ? adder.sum() : 0;
+    }
+
+    public static void reset() {
+        histograms.clear();
+        counters.clear();
+        gauges.clear();
+    }
+
+    /**
+     * @return {"counters": {...}, "gauges": {...}, "histograms": {name: {count, meanMs, p50Ms, ...}}}
+     */
+    public static String toJson() {
+        StringBuilder json = new StringBuilder("{\"counters\":{");
+        String separator = "";
+
+        for (Map.Entry<String, LongAdder> counter : new TreeMap<>(counters).entrySet()) {
+            json.append(separator).append('"').append(counter.getKey()).append("\":").append(counter.getValue().sum());
+            separator = ",";
+        }
+
+        json.append("},\"gauges\":{");
+        separator = "";
+
+        for (Map.Entry<String, Long> gauge : readGauges().entrySet()) {
+            json.append(separator).append('"').append(gauge.getKey()).append("\":").append(gauge.getValue());
+            separator = ",";
+        }
+
+        json.append("},\"histograms\":{");
+        separator = "";
+
+        for (Map.Entry<String, Histogram> histogram : new TreeMap<>(histograms).entrySet()) {
+            Histogram value = histogram.getValue();
+
+            json.append(separator).append('"').append(histogram.getKey()).append("\":{")
+                    .append("\"count\":").append(value.getCount())
+                    .append(",\"totalMs\":").append(toMillis(value.getTotal()))
+                    .append(",\"meanMs\":").append(toMillis(value.getMean()))
+                    .append(",\"p50Ms\":").append(toMillis(value.getPercentile(0.5)))
+                    .append(",\"p90Ms\":").append(toMillis(value.getPercentile(0.9)))
+                    .append(",\"p99Ms\":").append(toMillis(value.getPercentile(0.99)))
+                    .append(",\"maxMs\":").append(toMillis(value.getMax()))
+                    .append('}');
+            separator = ",";
+        }
+
+        return json.append("}}").toString();
+    }
+
+    /**
+     * @return one line with every counter, gauge and the count, median and 99th percentile of every stage
+     */
+    public static String toLogLine() {
+        StringBuilder line = new StringBuilder("Metrics:");
+
+        for (Map.Entry<String, LongAdder> counter : new TreeMap<>(counters).entrySet()) {
+            line.append(' ').append(counter.getKey()).append('=').append(counter.getValue().sum());
+        }
+
+        for (Map.Entry<String, Long> gauge : readGauges().entrySet()) {
+            line.append(' ').append(gauge.getKey()).append('=').append(gauge.getValue());
+        }
+
+        for (Map.Entry<String, Histogram> histogram : new TreeMap<>(histograms).entrySet()) {
+            Histogram value = histogram.getValue();
+
+            line.append(String.format(Locale.US, " %s[n=%d p50=%.2fms p99=%.2fms]", histogram.getKey(),
+                    value.getCount(), value.getPercentile(0.5) / 1e6, value.getPercentile(0.99) / 1e6));
+        }
+
+        return line.toString();
+    }
+
+    /**
+     * Prints toLogLine to System.out every period from a daemon thread until stopReporting.
+     */
+    public static synchronized void startReporting(long period, TimeUnit unit) {
+        stopReporting();
+
+        reporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-reporter");
+            thread.setDaemon(true);
+
+            return thread;
+        });
+
+        reporter.scheduleAtFixedRate(() -> System.out.println(toLogLine()), period, period, unit);
+    }
+
+    public static synchronized void stopReporting() {
+        if (reporter != null) {
+            reporter.shutdownNow();
+            reporter = null;
+        }
+    }
+
+    private static Map<String, Long> readGauges() {
+        Map<String, Long> values = new TreeMap<>();
+
+        for (Map.Entry<String, LongSupplier> gauge : gauges.entrySet()) {
+            values.put(gauge.getKey(), gauge.getValue().getAsLong());
+        }
+
+        return values;
+    }
+
+    private static String toMillis(double nanos) {
+        return String.format(Locale.US, "%.3f", nanos / 1e6);
+    }
+
+    /**
+     * Latencies in nanoseconds counted in buckets of 1/8 of a power of two, so
+     * percentiles are exact up to 12.5%. Safe for concurrent recording.
+     */
+    public static class Histogram {
+        private static final int SUB_BUCKET_BITS = 3;
+        private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(64 * SUB_BUCKETS);
+
+        private final LongAdder count = new LongAdder();
+        private final LongAdder total = new LongAdder();
+        private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+        public void record(long nanos) {
+            long value = Math.max(nanos, 0);
+
+            buckets.incrementAndGet(bucket(value));
+            count.increment();
+            total.add(value);
+            max.accumulate(value);
+        }
+
+        public long getCount() { return this.count.sum(); }
+
+        public long getTotal() { return this.total.sum(); }
+
+        public long getMax() { return this.max.get(); }
+
+        public double getMean() {
+            long recorded = getCount();
+
+            return (recorded > 0) ? (double) getTotal() / recorded : 0;
+        }
+
+        /**
+         * @return upper bound of the bucket holding the given quantile, 0 if nothing was recorded
+         */
+        public long getPercentile(double quantile) {
+            long recorded = getCount();
+
+            if (recorded == 0)
+                return 0;
+
+            long rank = Math.max(1, (long) Math.ceil(quantile * recorded));
+            long seen = 0;
+
+            for (int bucket = 0; bucket < buckets.length(); ++bucket) {
+                seen += buckets.get(bucket);
+
+                if (seen >= rank)
+                    return Math.min(upperBound(bucket), getMax());
+            }
+
+            return getMax();
+        }
+
+        private static int bucket(long value) {
+            if (value < SUB_BUCKETS)
+                return (int) value;
+
+            int exponent = 63 - Long.numberOfLeadingZeros(value);
+            int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+
+            return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+        }
+
+        private static long upperBound(int bucket) {
+            if (bucket < SUB_BUCKETS)
+                return bucket;
+
+            int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+            long subBucket = bucket % SUB_BUCKETS;
+
+            return ((SUB_BUCKETS + subBucket + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+        }
+    }
+}
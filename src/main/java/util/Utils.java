@@ -7,6 +7,9 @@ public class Utils {
     public static final String stopWordsFileAddress =
             "./Files/Additional/StopWords.txt";
 
+    public static final String lemmaTableAddress =
+            "./Files/Additional/LemmaTable.txt";
+
     public static final String antiCorpusAddress =
             "./Files/Corpuses/anti_GMO.txt";
 
@@ -29,6 +32,16 @@ public class Utils {
     public static final String markedDictionaryAddress =
             "./Files/Dictionaries/MarkedDictionary.txt";
 
+    public static final String markedLexiconAddress =
+            "./Files/Dictionaries/MarkedDictionary.lex";
+
+    public static final String wordNetAddress =
+            "/home/artem/Documents/Additional/WordNet-3.0/dict";
+
+    public static final String WORDNET_ADDRESS_PROPERTY = "wordnet.dict";
+
+    public static final int PERIPHERY_CACHE_SIZE = 10000;
+
     public static final String markedAdjectives =
             "./Files/Dictionaries/markedAdjectives.txt";
 
@@ -43,12 +56,22 @@ public class Utils {
 
 
 
+    public static final String annotationCacheAddress =
+            "./Files/Cache/Annotations";
+
+    public static final long ANNOTATION_CACHE_SIZE = 256L * 1024 * 1024;
+
+
+
     public static final String weightsAddress =
             "./Files/Classifier/Weights.txt";
 
     public static final String indexesAddress =
             "./Files/Classifier/Indexes.txt";
 
+    public static final String modelAddress =
+            "./Files/Classifier/Model.bin";
+
 
     public static final double LEARNING_ACCURACY = 1.0;
 
@@ -56,6 +79,14 @@ public class Utils {
 
     public static final int LOGGING_FREQUENCY = 10;
 
+    public static final double STREAMING_MARGIN_SCALE = 1.0;
+
+    // streaming classification reads at least this share of the text and expects at least
+    // this many new features per character in the rest of it
+    public static final double STREAMING_MIN_PROCESSED_SHARE = 0.2;
+
+    public static final double STREAMING_MIN_FEATURE_DENSITY = 1.0 / 16;
+
 
     public static final double TRAINING_DATA_SIZE = 0.75;
 
@@ -0,0 +1,107 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Interns (lemma, POS) pairs into dense int ids shared by documents,
+ * corpora and classifiers. Ids are assigned in order of first appearance
+ * and never change. Safe for concurrent use.
+ *
+ * There is no process-wide vocabulary: every corpus owns one and documents
+ * parsed on their own get a private one, so classifying unrelated texts never
+ * grows a corpus or classifier vocabulary.
+ */
+public class Vocabulary {
+    private static final int INITIAL_CAPACITY = 1 << 6;
+
+    public static final int UNKNOWN_ID = -1;
+
+    // lemma -> id, one map per POS ordinal
+    private final List<ConcurrentMap<String, Integer>> ids;
+
+    private volatile String[] lemmas;
+    private volatile POS[] poses;
+    private volatile int size;
+
+    public Vocabulary() {
+        ids = new ArrayList<>(POS.values().length);
+
+        for (int i = 0; i < POS.values().length; ++i) {
+            ids.add(new ConcurrentHashMap<>());
+        }
+
+        lemmas = new String[INITIAL_CAPACITY];
+        poses = new POS[INITIAL_CAPACITY];
+    }
+
+    /**
+     * @return id of the (lemma, POS) pair, adding it to the vocabulary if necessary
+     */
+    public int getId(String lemma, POS pos) {
+        Integer id = ids.get(pos.ordinal()).get(lemma);
+
+        if (id != null)
+            return id;
+
+        synchronized (this) {
+            id = ids.get(pos.ordinal()).get(lemma);
+
+            if (id != null)
+                return id;
+
+            int newId = size;
+
+            if (newId == lemmas.length) {
+                lemmas = Arrays.copyOf(lemmas, 2 * newId);
+                poses = Arrays.copyOf(poses, 2 * newId);
+            }
+
+            lemmas[newId] = lemma;
+            poses[newId] = pos;
+            size = newId + 1;
+
+            ids.get(pos.ordinal()).put(lemma, newId);
+
+            return newId;
+        }
+    }
+
+    /**
+     * @return id of the (lemma, POS) pair or UNKNOWN_ID if it was never added
+     */
+    public int findId(String lemma, POS pos) {
+        if (lemma == null || pos == null)
+            return UNKNOWN_ID;
+
+        Integer id = ids.get(pos.ordinal()).get(lemma);
+
+        return (id != null) ? id : UNKNOWN_ID;
+    }
+
+    public int findId(Word word) {
+        return findId(word.getWord(), word.getPOS());
+    }
+
+    public String getLemma(int id) {
+        return lemmas[id];
+    }
+
+    public POS getPOS(int id) {
+        return poses[id];
+    }
+
+    /**
+     * @return new Word for the id without any occurrences
+     */
+    public Word getWord(int id) {
+        return new Word(lemmas[id], poses[id]);
+    }
+
+    public int size() {
+        return this.size;
+    }
+}
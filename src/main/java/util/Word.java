@@ -1,7 +1,7 @@
 package util;
 
-import corpus.Document;
 import corpus.DocumentOpinion;
+import corpus.Token;
 import edu.stanford.nlp.ling.CoreAnnotations;
 import edu.stanford.nlp.ling.CoreLabel;
 
@@ -24,8 +24,6 @@ public class Word implements Comparable<Word> {
     private Integer negativeDocsNumber;
     private Integer neutralDocsNumber;
 
-    private HashMap<Document, Integer> frequencyPerDoc;
-
     private Double mark;
 
 
@@ -37,8 +35,6 @@ public class Word implements Comparable<Word> {
         negativeFrequency = 0;
         neutralFrequency = 0;
 
-        frequencyPerDoc = new HashMap<>();
-
         positiveDocsNumber = 0;
         negativeDocsNumber = 0;
         neutralDocsNumber = 0;
@@ -46,16 +42,29 @@ public class Word implements Comparable<Word> {
         mark = 0.0;
     }
 
+    public Word (String word, POS pos) {
+        this();
+
+        this.word = word;
+        this.pos = pos;
+    }
+
     public Word (CoreLabel token) {
-        word = token.get(CoreAnnotations.LemmaAnnotation.class).trim().toLowerCase();
-        pos = POS.fromString(token.get(CoreAnnotations.PartOfSpeechAnnotation.class));
+        this(token.get(CoreAnnotations.LemmaAnnotation.class), token.get(CoreAnnotations.PartOfSpeechAnnotation.class));
+    }
+
+    public Word (Token token) {
+        this(token.getLemma(), token.getTag());
+    }
+
+    private Word (String lemma, String tag) {
+        word = lemma.trim().toLowerCase();
+        pos = POS.fromString(tag);
 
         positiveFrequency = 0;
         negativeFrequency = 0;
         neutralFrequency = 0;
 
-        frequencyPerDoc = new HashMap<>();
-
         positiveDocsNumber = 0;
         negativeDocsNumber = 0;
         neutralDocsNumber = 0;
@@ -65,8 +74,8 @@ public class Word implements Comparable<Word> {
 
     @Override
     public int hashCode() {
-        String temp = word + pos;
-        return temp.hashCode();
+        int result = word != null ? word.hashCode() : 0;
+        return 31 * result + (pos != null ? pos.ordinal() + 1 : 0);
     }
 
     public int compareTo(Word anotherWord) {
@@ -103,10 +112,6 @@ public class Word implements Comparable<Word> {
         return this.pos;
     }
 
-    public Integer getFrequencyInDoc(Document document) {
-        return frequencyPerDoc.get(document);
-    }
-
     public Double getMark() { return mark; }
 
     public void setMark(Double mark) { this.mark = mark; }
@@ -127,29 +132,26 @@ public class Word implements Comparable<Word> {
 
     public Integer getNeutralFrequency() { return this.neutralFrequency; }
 
-    public void addOccurrence(Document document) {
-        if (this.frequencyPerDoc.containsKey(document)) {
-            Integer freq = this.frequencyPerDoc.get(document);
-            this.frequencyPerDoc.put(document, ++freq);
+    /**
+     * Counts the word as occurring count times in one more document with the given opinion.
+     */
+    public void addOccurrences(DocumentOpinion opinion, int count) {
+        addOccurrences(opinion, count, 1);
+    }
+
+    /**
+     * Counts the word as occurring frequency times in total in docsNumber more documents with the given opinion.
+     */
+    public void addOccurrences(DocumentOpinion opinion, int frequency, int docsNumber) {
+        if (opinion.equals(DocumentOpinion.NEGATIVE)) {
+            negativeFrequency += frequency;
+            negativeDocsNumber += docsNumber;
+        } else if (opinion.equals(DocumentOpinion.POSITIVE)) {
+            positiveFrequency += frequency;
+            positiveDocsNumber += docsNumber;
         } else {
-            this.frequencyPerDoc.put(document, 1);
-
-            if (document.getOpinion().equals(DocumentOpinion.NEGATIVE)) {
-                ++negativeDocsNumber;
-            } else if (document.getOpinion().equals(DocumentOpinion.POSITIVE)) {
-                ++positiveDocsNumber;
-            } else {
-                ++neutralDocsNumber;
-            }
-        }
-
-
-        if (document.getOpinion().equals(DocumentOpinion.NEGATIVE)) {
-            ++negativeFrequency;
-        } else if (document.getOpinion().equals(DocumentOpinion.POSITIVE)) {
-            ++positiveFrequency;
-        } else {
-            ++neutralFrequency;
+            neutralFrequency += frequency;
+            neutralDocsNumber += docsNumber;
         }
     }
 
@@ -214,25 +216,16 @@ public class Word implements Comparable<Word> {
         return this.word.equals(anotherWord.word) && this.hasSamePOS(anotherWord);
     }
 
+    /**
+     * Adds counts of the same word collected over other documents.
+     */
     public void merge(Word anotherWord) {
         this.positiveFrequency += anotherWord.positiveFrequency;
         this.negativeFrequency += anotherWord.negativeFrequency;
         this.neutralFrequency += anotherWord.neutralFrequency;
 
-        for (Document key : anotherWord.frequencyPerDoc.keySet()) {
-            if (this.frequencyPerDoc.containsKey(key)) {
-                Integer freq = this.frequencyPerDoc.get(key);
-                this.frequencyPerDoc.put(key, freq + anotherWord.getFrequencyInDoc(key));
-            } else {
-                this.frequencyPerDoc.put(key, anotherWord.getFrequencyInDoc(key));
-
-                if (key.getOpinion().equals(DocumentOpinion.NEGATIVE))
-                    ++negativeDocsNumber;
-                else if (key.getOpinion().equals(DocumentOpinion.POSITIVE))
-                    ++positiveDocsNumber;
-                else
-                    ++neutralDocsNumber;
-            }
-        }
+        this.positiveDocsNumber += anotherWord.positiveDocsNumber;
+        this.negativeDocsNumber += anotherWord.negativeDocsNumber;
+        this.neutralDocsNumber += anotherWord.neutralDocsNumber;
     }
 }